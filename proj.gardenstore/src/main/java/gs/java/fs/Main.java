@@ -3,9 +3,11 @@ package gs.java.fs;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.ComponentScan;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication(scanBasePackages = "gs.java.fs")
 @ComponentScan("gs.java.fs.utils")
+@EnableScheduling
 public class Main {
 public static void main(String[] args) {
         SpringApplication.run(Main.class, args);
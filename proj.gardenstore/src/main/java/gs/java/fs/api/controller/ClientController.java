@@ -1,14 +1,25 @@
 package gs.java.fs.api.controller;
 
 import gs.java.fs.api.models.dtos.ClientDTO;
+import gs.java.fs.api.models.dtos.PageDTO;
 import gs.java.fs.api.models.form.ClientForm;
+import gs.java.fs.api.models.form.ClientPatchForm;
 import gs.java.fs.bll.AuthRequest;
 import gs.java.fs.bll.AuthResponse;
+import gs.java.fs.bll.ClientCredentials;
 import gs.java.fs.bll.ClientService;
+import gs.java.fs.bll.ClientEmailIndex;
+import gs.java.fs.bll.LoginRateLimiter;
 import gs.java.fs.domain.entities.Client;
+import gs.java.fs.exceptions.ClientException;
+import gs.java.fs.exceptions.HashingSaturatedException;
+import gs.java.fs.utils.IdempotencyStore;
 import gs.java.fs.utils.JwtTokenUtil;
+import gs.java.fs.utils.KeysetCursor;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -25,46 +36,82 @@ import java.util.List;
 
 public class ClientController {
     private final ClientService clientService;
+    private final IdempotencyStore idempotencyStore;
+    private final LoginRateLimiter loginRateLimiter;
+    private final ClientEmailIndex emailIndex;
 
     @Autowired
     AuthenticationManager authManager;
     @Autowired
     JwtTokenUtil jwtUtil;
 
-    public ClientController(ClientService clientService) {
+    public ClientController(ClientService clientService, IdempotencyStore idempotencyStore,
+                            LoginRateLimiter loginRateLimiter, ClientEmailIndex emailIndex) {
         this.clientService = clientService;
+        this.idempotencyStore = idempotencyStore;
+        this.loginRateLimiter = loginRateLimiter;
+        this.emailIndex = emailIndex;
 
     }
     @GetMapping
     public ResponseEntity<List<ClientDTO>> getAll() {
-        List<Client> users = clientService.getAll();
-        List<ClientDTO> dtos = users.stream()
-                .map(ClientDTO::fromEntity)
-                .toList();
-        return ResponseEntity.ok( dtos );
+        return ResponseEntity.ok( clientService.getAllDTO() );
+    }
+    @GetMapping(params = "limit")
+    public ResponseEntity<PageDTO<ClientDTO>> getPage(@RequestParam int limit,
+                                                      @RequestParam(required = false) String cursor) {
+        int size = PageDTO.clamp(limit);
+        List<Client> users = clientService.getPage(KeysetCursor.decode(cursor), size + 1);
+        return ResponseEntity.ok(
+                PageDTO.of(users, size, ClientDTO::fromEntity, user -> KeysetCursor.encode(null, user.getId()))
+        );
     }
     @GetMapping("/{id}")
     public ResponseEntity<ClientDTO> getOne(@PathVariable Long id) {
-        Client user = clientService.getOne(id);
-        ClientDTO dto = ClientDTO.fromEntity(user);
-        return ResponseEntity.ok(dto);
+        return ResponseEntity.ok( clientService.getOneDTO(id) );
     }
     //@PreAuthorize("hasRole('ROLE_ADMIN')")
     @PostMapping("/insert")
-    public ResponseEntity<ClientDTO> create(@RequestBody @Valid ClientForm form){
-        Client user = clientService.create( form.ToEntity());
-        ClientDTO dto = ClientDTO.fromEntity(user);
-        return ResponseEntity.status(HttpStatus.CREATED)
-                .body(dto);
+    public ResponseEntity<?> create(@RequestHeader(value = IdempotencyStore.HEADER, required = false) String idempotencyKey,
+                                    @RequestBody @Valid ClientForm form){
+        if (idempotencyKey != null)
+            return idempotencyStore.execute("client", idempotencyKey, form, () -> create(form));
+        return create(form);
+    }
+    private ResponseEntity<ClientDTO> create(ClientForm form){
+        try {
+            Client user = clientService.create( form.ToEntity());
+            ClientDTO dto = ClientDTO.fromEntity(user);
+            return ResponseEntity.status(HttpStatus.CREATED)
+                    .body(dto);
+        } catch (ClientException ex) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        } catch (HashingSaturatedException ex) {
+            return saturated(ex);
+        }
     }
     @PutMapping("/{id}")
     public ResponseEntity<ClientDTO> update(@PathVariable Long id, @RequestBody @Valid ClientForm form) {
         Client toUpdate = clientService.getOne(id);
         toUpdate.setPassword(form.ToEntity().getPassword());
-        Client user = clientService.update(toUpdate.getId(), toUpdate);
-        return ResponseEntity.ok(
-                ClientDTO.fromEntity(user)
-        );
+        try {
+            Client user = clientService.update(toUpdate.getId(), toUpdate);
+            return ResponseEntity.ok(
+                    ClientDTO.fromEntity(user)
+            );
+        } catch (ClientException ex) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        } catch (HashingSaturatedException ex) {
+            return saturated(ex);
+        }
+    }
+    @PatchMapping("/{id}")
+    public ResponseEntity<ClientDTO> patch(@PathVariable Long id, @RequestBody @Valid ClientPatchForm form) {
+        try {
+            return ResponseEntity.ok( clientService.patch(id, form) );
+        } catch (ClientException ex) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
     }
     @DeleteMapping("/{id}")
     public ResponseEntity<ClientDTO> delete(@PathVariable Long id) {
@@ -73,7 +120,13 @@ public class ClientController {
         return ResponseEntity.ok( dto );
     }
     @PostMapping("/login")
-    public ResponseEntity<?> login(@RequestBody @Valid AuthRequest request) {
+    public ResponseEntity<?> login(@RequestBody @Valid AuthRequest request, HttpServletRequest http) {
+        // refus avant toute lecture en base ou vérification BCrypt
+        long retryAfter = loginRateLimiter.check(http.getRemoteAddr(), request.getEmail());
+        if (retryAfter > 0)
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, Long.toString(retryAfter))
+                    .build();
         try {
             Authentication authentication = authManager.authenticate(
                     new UsernamePasswordAuthenticationToken(
@@ -81,15 +134,33 @@ public class ClientController {
                     )
             );
 
-            Client user = (Client) authentication.getPrincipal();
-            String accessToken = jwtUtil.generateAccessToken(user);
-            AuthResponse response = new AuthResponse(user.getMail(), accessToken);
+            ClientCredentials user = (ClientCredentials) authentication.getPrincipal();
+            String accessToken = jwtUtil.generateAccessToken(user.id(), user);
+            AuthResponse response = new AuthResponse(user.mail(), accessToken);
 
             return ResponseEntity.ok().body(response);
 
         } catch (BadCredentialsException ex) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        } catch (HashingSaturatedException ex) {
+            return saturated(ex);
         }
     }
 
+    @GetMapping("/email-index/stats")
+    public ResponseEntity<ClientEmailIndex.Stats> emailIndexStats() {
+        return ResponseEntity.ok( emailIndex.stats() );
+    }
+
+    @GetMapping("/login/stats")
+    public ResponseEntity<LoginRateLimiter.Stats> loginStats() {
+        return ResponseEntity.ok( loginRateLimiter.stats() );
+    }
+
+    private static <T> ResponseEntity<T> saturated(HashingSaturatedException ex) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, Long.toString(ex.getRetryAfterSeconds()))
+                .build();
+    }
+
 }
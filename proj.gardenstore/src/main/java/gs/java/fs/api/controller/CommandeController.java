@@ -1,14 +1,39 @@
 package gs.java.fs.api.controller;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
 import gs.java.fs.api.models.dtos.CommandeDTO;
+import gs.java.fs.api.models.dtos.LigneCommandeDTO;
+import gs.java.fs.api.models.dtos.PageDTO;
+import gs.java.fs.api.models.form.CommandeBulkForm;
 import gs.java.fs.api.models.form.CommandeForm;
+import gs.java.fs.api.models.form.CommandePatchForm;
+import gs.java.fs.bll.CommandeArchive;
+import gs.java.fs.bll.CommandeBulkService;
+import gs.java.fs.bll.CommandeEventFeed;
+import gs.java.fs.bll.CommandeIngestionPipeline;
 import gs.java.fs.bll.CommandeService;
+import gs.java.fs.bll.ExportService;
+import gs.java.fs.bll.SalesRollup;
 import gs.java.fs.domain.entities.Commande;
+import gs.java.fs.utils.IdempotencyStore;
+import gs.java.fs.utils.KeysetCursor;
 import jakarta.validation.Valid;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("commande")
@@ -17,46 +42,165 @@ import java.util.List;
 
 public class CommandeController {
     private final CommandeService commandeService;
+    private final ExportService exportService;
+    private final CommandeIngestionPipeline ingestionPipeline;
+    private final IdempotencyStore idempotencyStore;
+    private final CommandeEventFeed eventFeed;
+    private final CommandeArchive commandeArchive;
+    private final CommandeBulkService commandeBulkService;
+    private final ObjectMapper objectMapper;
 
-    public CommandeController(CommandeService commandeService) {
+    public CommandeController(CommandeService commandeService, ExportService exportService,
+                              CommandeIngestionPipeline ingestionPipeline, IdempotencyStore idempotencyStore,
+                              CommandeEventFeed eventFeed, CommandeArchive commandeArchive,
+                              CommandeBulkService commandeBulkService, ObjectMapper objectMapper) {
         this.commandeService = commandeService;
+        this.exportService = exportService;
+        this.ingestionPipeline = ingestionPipeline;
+        this.idempotencyStore = idempotencyStore;
+        this.eventFeed = eventFeed;
+        this.commandeArchive = commandeArchive;
+        this.commandeBulkService = commandeBulkService;
+        this.objectMapper = objectMapper;
     }
 
     @GetMapping
     public ResponseEntity<List<CommandeDTO>> getAll() {
-        List<Commande> commandes = commandeService.getAll();
-        List<CommandeDTO> dtos = commandes.stream()
-                .map(CommandeDTO::fromEntity)
-                .toList();
-        return ResponseEntity.ok(dtos);
+        return ResponseEntity.ok(commandeService.getAllDTO());
+    }
+
+    @GetMapping(params = "limit")
+    public ResponseEntity<PageDTO<CommandeDTO>> getPage(@RequestParam int limit,
+                                                        @RequestParam(required = false) String cursor) {
+        int size = PageDTO.clamp(limit);
+        List<Commande> commandes = commandeService.getPage(KeysetCursor.decode(cursor), size + 1);
+        return ResponseEntity.ok(
+                PageDTO.of(commandes, size, CommandeDTO::fromEntity, commande -> KeysetCursor.encode(null, commande.getId()))
+        );
+    }
+
+    @GetMapping(params = {"from", "to"})
+    public ResponseEntity<PageDTO<CommandeDTO>> getByDateRange(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                               @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                                               @RequestParam(required = false) Long livreur,
+                                                               @RequestParam(defaultValue = "100") int limit,
+                                                               @RequestParam(required = false) String cursor) {
+        int size = PageDTO.clamp(limit);
+        List<CommandeDTO> rows = commandeService.getByDateRange(from, to, livreur, KeysetCursor.decode(cursor, LocalDate::parse), size + 1);
+        return ResponseEntity.ok(
+                PageDTO.of(rows, size, dto -> dto, dto -> KeysetCursor.encode(dto.dateCommande(), dto.id()))
+        );
+    }
+
+    @GetMapping("/stats")
+    public ResponseEntity<SalesRollup.Stats> stats(@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                   @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return ResponseEntity.ok(commandeService.stats(from, to));
+    }
+
+    @PostMapping("/stats/rebuild")
+    public ResponseEntity<Void> rebuildStats() {
+        commandeService.rebuildStats();
+        return ResponseEntity.noContent().build();
+    }
+
+    @GetMapping(value = "/export", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> export(@RequestParam(defaultValue = "false") boolean gzip) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (gzip)
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        return response.body(out -> exportService.exportCommandes(gzip ? new GZIPOutputStream(out, true) : out));
+    }
+
+    @GetMapping("/archive")
+    public ResponseEntity<List<CommandeArchive.Month>> archive() {
+        return ResponseEntity.ok(commandeArchive.months());
+    }
+
+    @GetMapping(value = "/stream", produces = "text/event-stream")
+    public SseEmitter stream(@RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        return eventFeed.subscribe(lastEventId);
     }
 
     @GetMapping("/{id}")
     public ResponseEntity<CommandeDTO> getOne(@PathVariable Long id) {
-        Commande commande = commandeService.getOne(id);
-        CommandeDTO dto = CommandeDTO.fromEntity(commande);
-        return ResponseEntity.ok(dto);
+        return ResponseEntity.ok(commandeService.getOneDTO(id));
+    }
+
+    @GetMapping("/{id}/lignes")
+    public ResponseEntity<List<LigneCommandeDTO>> getLignes(@PathVariable Long id) {
+        return ResponseEntity.ok(commandeService.getLignes(id));
     }
 
     @PostMapping("/register/commande")
-    public ResponseEntity<CommandeDTO> register(@RequestBody @Valid CommandeForm form) {
-        Commande commande = form.toEntity();
-        commande = commandeService.register(commande);
+    public ResponseEntity<?> register(@RequestHeader(value = IdempotencyStore.HEADER, required = false) String idempotencyKey,
+                                      @RequestBody @Valid CommandeForm form) {
+        if (idempotencyKey != null)
+            return idempotencyStore.execute("commande", idempotencyKey, form, () -> register(form));
+        return register(form);
+    }
+
+    private ResponseEntity<?> register(CommandeForm form) {
+        if (ingestionPipeline.isEnabled()) {
+            Optional<UUID> trackingId = ingestionPipeline.submit(form);
+            if (trackingId.isEmpty())
+                return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                        .header(HttpHeaders.RETRY_AFTER, "1")
+                        .build();
+            return ResponseEntity.accepted()
+                    .location(URI.create("/commande/ingestion/" + trackingId.get()))
+                    .body(ingestionPipeline.status(trackingId.get()).orElse(null));
+        }
+        Commande commande = commandeService.register(form.toEntity());
         CommandeDTO dto = CommandeDTO.fromEntity(commande);
         return ResponseEntity.status(HttpStatus.CREATED)
                 .body(dto);
     }
 
+    // une ligne NDJSON d'avancement par lot validé, la dernière porte termine = true
+    @PostMapping(value = "/bulk", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> bulk(@RequestBody @Valid CommandeBulkForm form) {
+        commandeBulkService.check(form);
+        return ResponseEntity.ok(out -> {
+            try (SequenceWriter writer = objectMapper.writer().withRootValueSeparator("\n").writeValues(out)) {
+                commandeBulkService.run(form, progress -> {
+                    try {
+                        writer.write(progress);
+                        writer.flush();
+                    } catch (IOException ex) {
+                        throw new UncheckedIOException(ex);
+                    }
+                });
+                out.write('\n');
+            }
+        });
+    }
+
+    @GetMapping("/ingestion/{trackingId}")
+    public ResponseEntity<CommandeIngestionPipeline.Status> ingestionStatus(@PathVariable UUID trackingId) {
+        return ingestionPipeline.status(trackingId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
     @PutMapping("/{id}")
     public ResponseEntity<CommandeDTO> update(@PathVariable Long id, @RequestBody @Valid CommandeForm form) {
         Commande commande = commandeService.getOne(id);
-        commande.setQuantite(form.quantité());
+        // sur une commande avec lignes, le service refuse un montant ou une quantité différents des lignes
+        if (form.montant() != null)
+            commande.setMontant(form.montant());
+        if (form.quantité() != null)
+            commande.setQuantite(form.quantité());
         commande.setNCommande(form.n_commande());
         commande.setDateCommande(form.date_commande());
         Commande com = commandeService.update(id,commande);
         return ResponseEntity.ok(CommandeDTO.fromEntity(com));
 
     }
+    @PatchMapping("/{id}")
+    public ResponseEntity<CommandeDTO> patch(@PathVariable Long id, @RequestBody @Valid CommandePatchForm form) {
+        return ResponseEntity.ok(commandeService.patch(id, form));
+    }
     @DeleteMapping("/{id}")
     public ResponseEntity<CommandeDTO> delete(@PathVariable Long id) {
 
@@ -1,13 +1,18 @@
 package gs.java.fs.api.controller;
 
+import gs.java.fs.api.models.dtos.CommandeDTO;
 import gs.java.fs.api.models.dtos.LivreurDTO;
+import gs.java.fs.api.models.dtos.PageDTO;
 import gs.java.fs.api.models.form.LivreurForm;
+import gs.java.fs.bll.LivreurAssignment;
 import gs.java.fs.bll.LivreurService;
 import gs.java.fs.domain.entities.Livreur;
+import gs.java.fs.utils.KeysetCursor;
 import jakarta.validation.Valid;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 
@@ -21,17 +26,39 @@ import java.util.List;
             this.livreurService = livreurService;
         }
         @GetMapping
-        public ResponseEntity<List<LivreurDTO>> getAll() {
+        public ResponseEntity<List<LivreurDTO>> getAll(WebRequest request) {
+            String etag = livreurService.collectionEtag();
+            if (request.checkNotModified(etag))
+                return null;
+            return ResponseEntity.ok().eTag(etag).body( livreurService.getAllDTO() );
+        }
+        @GetMapping(params = "limit")
+        public ResponseEntity<PageDTO<LivreurDTO>> getPage(@RequestParam int limit,
+                                                           @RequestParam(required = false) String cursor) {
+            int size = PageDTO.clamp(limit);
             return ResponseEntity.ok(
-                    livreurService.getAll().stream()
-                            .map( LivreurDTO::fromEntity )
-                            .toList()
+                    PageDTO.of(livreurService.getPage(KeysetCursor.decode(cursor), size + 1), size,
+                            LivreurDTO::fromEntity,
+                            livreur -> KeysetCursor.encode(null, livreur.getId()))
             );
         }
+        @GetMapping("/charges")
+        public ResponseEntity<List<LivreurAssignment.Charge>> charges() {
+            return ResponseEntity.ok( livreurService.charges() );
+        }
         @GetMapping("/{id}")
-        public ResponseEntity<LivreurDTO> getOne(@PathVariable Long id){
+        public ResponseEntity<LivreurDTO> getOne(@PathVariable Long id, WebRequest request){
+            String etag = livreurService.etag(id);
+            if (request.checkNotModified(etag))
+                return null;
+            return ResponseEntity.ok().eTag(etag).body( livreurService.getOneDTO(id) );
+        }
+        @GetMapping("/{id}/commandes")
+        public ResponseEntity<List<CommandeDTO>> getCommandes(@PathVariable Long id){
             return ResponseEntity.ok(
-                    LivreurDTO.fromEntity( livreurService.getOne(id) )
+                    livreurService.getCommandes(id).stream()
+                            .map( CommandeDTO::fromEntity )
+                            .toList()
             );
         }
         @PostMapping
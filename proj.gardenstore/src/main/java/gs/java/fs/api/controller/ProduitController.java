@@ -1,44 +1,129 @@
 package gs.java.fs.api.controller;
 
+import gs.java.fs.api.models.dtos.PageDTO;
 import gs.java.fs.api.models.dtos.ProduitDTO;
 import gs.java.fs.api.models.form.ProduitForm;
+import gs.java.fs.api.models.form.ProduitPatchForm;
+import gs.java.fs.bll.ImportReport;
+import gs.java.fs.bll.ProduitImportService;
+import gs.java.fs.bll.CategorieAggregate;
+import gs.java.fs.bll.ExportService;
 import gs.java.fs.bll.ProduitService;
+import gs.java.fs.bll.ProduitSort;
+import gs.java.fs.bll.StockReservation;
+import gs.java.fs.bll.StockReservationService;
+import gs.java.fs.domain.entities.Description;
 import gs.java.fs.domain.entities.Produit;
+import gs.java.fs.exceptions.InvalidPageRequestException;
+import gs.java.fs.exceptions.StockInsuffisantException;
+import gs.java.fs.utils.BoundedCache;
+import gs.java.fs.utils.KeysetCursor;
+import gs.java.fs.utils.VersionTracker;
 import jakarta.validation.Valid;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
 import java.util.List;
+import java.util.UUID;
+import java.util.zip.GZIPOutputStream;
 @RestController
 @RequestMapping("/produit")
 @CrossOrigin("*")
 
     public class ProduitController {
         private final ProduitService produitService;
-        public ProduitController(ProduitService produitService) {
+        private final StockReservationService stockReservationService;
+        private final ProduitImportService produitImportService;
+        private final ExportService exportService;
+        public ProduitController(ProduitService produitService, StockReservationService stockReservationService,
+                                 ProduitImportService produitImportService, ExportService exportService) {
             this.produitService=produitService;
+            this.stockReservationService=stockReservationService;
+            this.produitImportService=produitImportService;
+            this.exportService=exportService;
         }
 
         @GetMapping
-        public ResponseEntity<List<ProduitDTO>> getAll() {
+        public ResponseEntity<List<ProduitDTO>> getAll(WebRequest request) {
+            String etag = produitService.collectionEtag();
+            if (request.checkNotModified(etag))
+                return null;
+            return ResponseEntity.ok().eTag(etag).body(produitService.getAllDTO());
+        }
+        @GetMapping(params = {"categorie", "!limit"})
+        public ResponseEntity<List<ProduitDTO>> getByCategorie(@RequestParam Description categorie) {
             return ResponseEntity.ok(
-                    produitService.getAll().stream()
+                    produitService.getByCategorie(categorie).stream()
                             .map( ProduitDTO::fromEntity)
                             .toList()
             );
         }
-        @GetMapping("/{id}")
-        public ResponseEntity<ProduitDTO> getOne(@PathVariable Long id){
+        @GetMapping(params = "limit")
+        public ResponseEntity<PageDTO<ProduitDTO>> getPage(@RequestParam int limit,
+                                                           @RequestParam(required = false) String cursor,
+                                                           @RequestParam(defaultValue = "id") String sort,
+                                                           @RequestParam(required = false) Description categorie) {
+            ProduitSort tri = ProduitSort.fromParam(sort);
+            if (categorie != null && tri != ProduitSort.ID)
+                throw new InvalidPageRequestException("le filtre par catégorie ne se combine qu'avec le tri par id");
+            int size = PageDTO.clamp(limit);
+            KeysetCursor after = KeysetCursor.decode(cursor, tri.keyParser());
+            List<Produit> rows = categorie == null
+                    ? produitService.getPage(tri, after, size + 1)
+                    : produitService.getPageByCategorie(categorie, after, size + 1);
+            return ResponseEntity.ok(
+                    PageDTO.of(rows, size,
+                            ProduitDTO::fromEntity,
+                            produit -> KeysetCursor.encode(tri.keyOf(produit), produit.getId()))
+            );
+        }
+        @GetMapping("/search")
+        public ResponseEntity<List<ProduitDTO>> search(@RequestParam String q,
+                                                       @RequestParam(defaultValue = "20") int limit) {
             return ResponseEntity.ok(
-                    ProduitDTO.fromEntity( produitService.getOne(id))
+                    produitService.search(q, PageDTO.clamp(limit)).stream()
+                            .map( ProduitDTO::fromEntity)
+                            .toList()
             );
         }
+        @GetMapping(value = "/export", produces = "application/x-ndjson")
+        public ResponseEntity<StreamingResponseBody> export(@RequestParam(defaultValue = "false") boolean gzip){
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+            if (gzip)
+                response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+            return response.body(out -> exportService.exportProduits(gzip ? new GZIPOutputStream(out, true) : out));
+        }
+        @GetMapping("/categories/stats")
+        public ResponseEntity<List<CategorieAggregate.Stats>> categorieStats(){
+            return ResponseEntity.ok(produitService.categorieStats());
+        }
+        @GetMapping("/{id}")
+        public ResponseEntity<ProduitDTO> getOne(@PathVariable Long id, WebRequest request){
+            // 304 servi depuis la table des versions, sans charger le produit
+            if (request.checkNotModified(produitService.etag(id)))
+                return null;
+            Produit produit = produitService.getOne(id);
+            return ResponseEntity.ok()
+                    .eTag(VersionTracker.etag(id, produit.getVersion()))
+                    .body(ProduitDTO.fromEntity(produit));
+        }
         @GetMapping("/mobilier/{id}")
         public ResponseEntity<ProduitDTO> getOneId(@PathVariable Long id){
             return ResponseEntity.ok(
                     ProduitDTO.fromEntity( produitService.getOneId(id))
             );
         }
+        @GetMapping("/cache/stats")
+        public ResponseEntity<BoundedCache.Stats> cacheStats(){
+            return ResponseEntity.ok(produitService.cacheStats());
+        }
         @PostMapping("/add")
         public ResponseEntity<ProduitDTO> add(@RequestBody @Valid ProduitForm form){
             Produit produit = produitService.add( form.toEntity());
@@ -46,20 +131,55 @@ import java.util.List;
             return ResponseEntity.status(HttpStatus.CREATED)
                     .body(dto);
         }
+        @PostMapping(value = "/import", consumes = "application/x-ndjson")
+        public ResponseEntity<ImportReport> importNdjson(InputStream body) throws IOException {
+            return ResponseEntity.ok(produitImportService.importNdjson(body));
+        }
+        @PostMapping(value = "/import", consumes = "text/csv")
+        public ResponseEntity<ImportReport> importCsv(InputStream body) throws IOException {
+            return ResponseEntity.ok(produitImportService.importCsv(body));
+        }
         @PutMapping("/{id}")
         public ResponseEntity<ProduitDTO> update(@PathVariable Long id, @RequestBody @Valid ProduitForm form) {
             Produit produit= produitService.getOne(id);
             produit.setNom(form.nom());
             produit.setReference(form.reference());
             produit.setPrixDeVente(form.prixDeVente());
-            Produit product = produitService.add(produit);
+            Produit product = produitService.update(id, produit);
             return ResponseEntity.ok(ProduitDTO.fromEntity(product));
         }
+        @PatchMapping("/{id}")
+        public ResponseEntity<ProduitDTO> patch(@PathVariable Long id, @RequestBody @Valid ProduitPatchForm form) {
+            Produit product = produitService.patch(id, form);
+            return ResponseEntity.ok()
+                    .eTag(VersionTracker.etag(id, product.getVersion()))
+                    .body(ProduitDTO.fromEntity(product));
+        }
         @DeleteMapping("/{id}")
         public ResponseEntity<Void> delete(@PathVariable Long id){
             produitService.delete(id);
             return ResponseEntity.ok().build();
         }
+        @PostMapping("/{id}/reservation")
+        public ResponseEntity<StockReservation> reserve(@PathVariable Long id,
+                                                        @RequestParam int quantite,
+                                                        @RequestParam(defaultValue = "PT15M") Duration ttl){
+            try {
+                return ResponseEntity.status(HttpStatus.CREATED)
+                        .body(stockReservationService.reserve(id, quantite, ttl));
+            } catch (StockInsuffisantException ex) {
+                return ResponseEntity.status(HttpStatus.CONFLICT).build();
+            }
+        }
+        @PostMapping("/reservation/{reservationId}/confirm")
+        public ResponseEntity<StockReservation> confirm(@PathVariable UUID reservationId){
+            return ResponseEntity.ok(stockReservationService.confirm(reservationId));
+        }
+        @DeleteMapping("/reservation/{reservationId}")
+        public ResponseEntity<Void> release(@PathVariable UUID reservationId){
+            stockReservationService.release(reservationId);
+            return ResponseEntity.noContent().build();
+        }
     }
 
 
@@ -18,7 +18,7 @@ public record ClientDTO(
 
         return new ClientDTO(
                 client.getId(),
-                client.getNom(), client.getMail(), client.getAddresse(), client.getPrenom(), client.getTelephone()
+                client.getNom(), client.getPrenom(), client.getAddresse(), client.getMail(), client.getTelephone()
         );
     }
 
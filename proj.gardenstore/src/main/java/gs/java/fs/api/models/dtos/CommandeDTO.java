@@ -1,6 +1,7 @@
 package gs.java.fs.api.models.dtos;
 
 import gs.java.fs.domain.entities.Commande;
+import gs.java.fs.domain.entities.StatutCommande;
 import java.time.LocalDate;
 
 /**
@@ -12,7 +13,8 @@ public record CommandeDTO (
     Integer montant,
     LocalDate dateCommande,
     Integer quantite,
-    Integer nCommande
+    Integer nCommande,
+    StatutCommande statut
 )
     {
     public static CommandeDTO fromEntity(Commande commande) {
@@ -23,7 +25,8 @@ public record CommandeDTO (
                 commande.getMontant(),
                 commande.getDateCommande(),
                 commande.getQuantite(),
-                commande.getNCommande()
+                commande.getNCommande(),
+                commande.getStatut()
 
 
             );
@@ -0,0 +1,14 @@
+package gs.java.fs.api.models.dtos;
+
+import gs.java.fs.domain.entities.LigneCommande;
+
+/**
+ * DTO for {@link LigneCommande}
+ */
+public record LigneCommandeDTO(
+        Long id,
+        Long produitId,
+        Integer quantite,
+        Integer prixUnitaire
+) {
+}
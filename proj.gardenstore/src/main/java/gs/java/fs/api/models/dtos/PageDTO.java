@@ -0,0 +1,30 @@
+package gs.java.fs.api.models.dtos;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Page d'une liste paginée par clé, {@code next} vaut null sur la dernière page
+ */
+public record PageDTO<T>(
+        List<T> items,
+        String next
+) {
+    public static final int MAX_LIMIT = 500;
+
+    public static int clamp(int limit) {
+        return Math.max(1, Math.min(limit, MAX_LIMIT));
+    }
+
+    /**
+     * @param rows jusqu'à {@code limit + 1} lignes, la ligne en trop indique qu'une page suivante existe
+     */
+    public static <E, T> PageDTO<T> of(List<E> rows, int limit, Function<E, T> mapper, Function<E, String> cursor) {
+        boolean more = rows.size() > limit;
+        List<E> page = more ? rows.subList(0, limit) : rows;
+        return new PageDTO<>(
+                page.stream().map(mapper).toList(),
+                more ? cursor.apply(page.get(limit - 1)) : null
+        );
+    }
+}
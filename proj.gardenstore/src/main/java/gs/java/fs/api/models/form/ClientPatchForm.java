@@ -0,0 +1,26 @@
+package gs.java.fs.api.models.form;
+
+import jakarta.validation.constraints.Email;
+import jakarta.validation.constraints.Size;
+
+/**
+ * Mise à jour partielle d'un client : les champs absents (null) restent inchangés.
+ */
+public record ClientPatchForm(
+        @Size(min = 1)
+        String nom,
+        @Size(min = 1)
+        String prenom,
+        // le PATCH passe par JDBC, sans la validation de l'entité
+        @Email(message = "Entrez une adresse email valide")
+        @Size(min = 1, max = 50)
+        String mail,
+        Integer telephone,
+        @Size(min = 1, max = 50)
+        String addresseRue,
+        @Size(min = 1, max = 50)
+        String addresseVille,
+        Integer addresseNumero,
+        Integer addresseCodepostal
+) {
+}
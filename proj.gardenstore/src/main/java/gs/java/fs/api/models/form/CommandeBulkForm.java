@@ -0,0 +1,40 @@
+package gs.java.fs.api.models.form;
+
+import gs.java.fs.domain.entities.StatutCommande;
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.NotNull;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Opération de masse sur des commandes, désignées soit par une liste d'ids, soit par une période.
+ */
+public record CommandeBulkForm(
+        @NotNull
+        Operation operation,
+        List<Long> ids,
+        LocalDate from,
+        LocalDate to,
+        Long livreurId,
+        StatutCommande statut
+) {
+
+    public enum Operation { ANNULER, REAFFECTER, CHANGER_STATUT }
+
+    @AssertTrue(message = "préciser soit des ids, soit une période from/to")
+    public boolean isSelectionValide() {
+        boolean parIds = ids != null && !ids.isEmpty();
+        boolean parDates = from != null && to != null;
+        return parIds != parDates;
+    }
+
+    @AssertTrue(message = "livreurId est obligatoire pour REAFFECTER, statut pour CHANGER_STATUT")
+    public boolean isParametreValide() {
+        return switch (operation == null ? Operation.ANNULER : operation) {
+            case ANNULER -> true;
+            case REAFFECTER -> livreurId != null;
+            case CHANGER_STATUT -> statut != null;
+        };
+    }
+}
@@ -1,27 +1,39 @@
 package gs.java.fs.api.models.form;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import gs.java.fs.domain.entities.Commande;
 import gs.java.fs.domain.entities.Livreur;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.AssertTrue;
 import jakarta.validation.constraints.NotNull;
 
 import java.time.LocalDate;
+import java.util.List;
 
 
 public record CommandeForm(
 
         @NotNull
         Long id,
-        @NotNull Integer quantité,
+        Integer quantité,
         @NotNull
         Integer n_commande,
         @NotNull
         LocalDate date_commande,
-        @NotNull
         Integer montant,
-        Livreur delivered_by_livreur_id
+        Livreur delivered_by_livreur_id,
+        Integer code_postal,
+        // si présentes, montant et quantité sont calculés par le serveur et ne doivent pas être fournis
+        List<@Valid LigneCommandeForm> lignes
 
         ) {
 
+    @JsonIgnore
+    @AssertTrue(message = "montant et quantité sont calculés à partir des lignes")
+    public boolean isTotauxDerives() {
+        return lignes == null || lignes.isEmpty() || (montant == null && quantité == null);
+    }
+
     public Commande toEntity(){
         Commande commande = new Commande();
         commande.setId(id);
@@ -29,6 +41,9 @@ public record CommandeForm(
         commande.setNCommande(n_commande);
         commande.setDateCommande(date_commande);
         commande.setMontant(montant);
+        commande.setCodePostal(code_postal);
+        if (lignes != null)
+            lignes.forEach(ligne -> commande.getLignes().add(ligne.toEntity()));
         return commande;
     }
 }
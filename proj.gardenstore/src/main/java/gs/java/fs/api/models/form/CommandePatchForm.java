@@ -0,0 +1,18 @@
+package gs.java.fs.api.models.form;
+
+import jakarta.validation.constraints.PositiveOrZero;
+
+import java.time.LocalDate;
+
+/**
+ * Mise à jour partielle d'une commande : les champs absents (null) restent inchangés.
+ */
+public record CommandePatchForm(
+        @PositiveOrZero
+        Integer montant,
+        LocalDate dateCommande,
+        @PositiveOrZero
+        Integer quantite,
+        Integer nCommande
+) {
+}
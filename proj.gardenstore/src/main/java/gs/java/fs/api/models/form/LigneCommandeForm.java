@@ -0,0 +1,23 @@
+package gs.java.fs.api.models.form;
+
+import gs.java.fs.domain.entities.LigneCommande;
+import gs.java.fs.domain.entities.Produit;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+
+public record LigneCommandeForm(
+        @NotNull
+        Long produitId,
+        @NotNull @Positive
+        Integer quantite
+) {
+
+    public LigneCommande toEntity() {
+        Produit produit = new Produit();
+        produit.setId(produitId);
+        LigneCommande ligne = new LigneCommande();
+        ligne.setProduit(produit);
+        ligne.setQuantite(quantite);
+        return ligne;
+    }
+}
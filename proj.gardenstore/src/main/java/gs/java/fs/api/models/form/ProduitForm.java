@@ -15,13 +15,12 @@ public record ProduitForm (
     Integer reference,
     @NotNull
     Integer prixDeVente,
-     @NotNull
     Long id,
      @NotNull
     Integer stock,
      @NotBlank
     String avis,
-    @NotBlank
+    @NotNull
     Description categorie
     )
 {
@@ -0,0 +1,22 @@
+package gs.java.fs.api.models.form;
+
+import gs.java.fs.domain.entities.Description;
+import jakarta.validation.constraints.PositiveOrZero;
+import jakarta.validation.constraints.Size;
+
+/**
+ * Mise à jour partielle d'un produit : les champs absents (null) restent inchangés.
+ */
+public record ProduitPatchForm(
+        @Size(min = 1, max = 50)
+        String nom,
+        Integer reference,
+        @PositiveOrZero
+        Integer prixDeVente,
+        @PositiveOrZero
+        Integer stock,
+        @Size(min = 1, max = 250)
+        String avis,
+        Description categorie
+) {
+}
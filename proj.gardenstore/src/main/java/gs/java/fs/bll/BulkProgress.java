@@ -0,0 +1,9 @@
+package gs.java.fs.bll;
+
+import gs.java.fs.api.models.form.CommandeBulkForm;
+
+/**
+ * Avancement d'une opération de masse, émis après chaque lot validé
+ */
+public record BulkProgress(CommandeBulkForm.Operation operation, long traitees, long total, boolean termine) {
+}
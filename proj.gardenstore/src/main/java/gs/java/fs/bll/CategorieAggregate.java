@@ -0,0 +1,93 @@
+package gs.java.fs.bll;
+
+import gs.java.fs.dal.ProduitRepository;
+import gs.java.fs.domain.entities.Description;
+import gs.java.fs.domain.entities.Produit;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Statistiques par catégorie de produit tenues à jour à chaque écriture,
+ * sans relire la table produit.
+ */
+@Component
+public class CategorieAggregate {
+
+    public record Stats(Description categorie, long produits, long stock, Integer prixMin, Integer prixMax) { }
+
+    private static final class Bucket {
+        long produits;
+        long stock;
+        // prix -> nombre de produits à ce prix, pour garder min/max exacts après suppression
+        final TreeMap<Integer, Long> prix = new TreeMap<>();
+
+        void add(int prixDeVente, long count, long stockSum) {
+            produits += count;
+            stock += stockSum;
+            prix.merge(prixDeVente, count, Long::sum);
+        }
+
+        void remove(int prixDeVente, long stockSum) {
+            produits--;
+            stock -= stockSum;
+            prix.computeIfPresent(prixDeVente, (k, n) -> n > 1 ? n - 1 : null);
+        }
+    }
+
+    private final ProduitRepository produitRepository;
+    private final EnumMap<Description, Bucket> buckets = new EnumMap<>(Description.class);
+
+    public CategorieAggregate(ProduitRepository produitRepository) {
+        this.produitRepository = produitRepository;
+        for (Description categorie : Description.values())
+            buckets.put(categorie, new Bucket());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() {
+        for (Description categorie : Description.values())
+            buckets.put(categorie, new Bucket());
+        for (Object[] row : produitRepository.aggregateByCategorieAndPrix()) {
+            buckets.get((Description) row[0]).add((Integer) row[1], (Long) row[2], (Long) row[3]);
+        }
+    }
+
+    public synchronized void onSaved(Produit previous, Produit saved) {
+        if (previous != null)
+            onDeleted(previous);
+        if (saved.getCategorie() != null)
+            buckets.get(saved.getCategorie()).add(saved.getPrixDeVente(), 1, saved.getStock());
+    }
+
+    public synchronized void onDeleted(Produit produit) {
+        if (produit.getCategorie() != null)
+            buckets.get(produit.getCategorie()).remove(produit.getPrixDeVente(), produit.getStock());
+    }
+
+    public synchronized void adjustStock(Description categorie, long delta) {
+        if (categorie != null)
+            buckets.get(categorie).stock += delta;
+    }
+
+    public synchronized List<Stats> snapshot() {
+        List<Stats> stats = new ArrayList<>(buckets.size());
+        for (Map.Entry<Description, Bucket> entry : buckets.entrySet()) {
+            Bucket bucket = entry.getValue();
+            stats.add(new Stats(
+                    entry.getKey(),
+                    bucket.produits,
+                    bucket.stock,
+                    bucket.prix.isEmpty() ? null : bucket.prix.firstKey(),
+                    bucket.prix.isEmpty() ? null : bucket.prix.lastKey()
+            ));
+        }
+        return stats;
+    }
+}
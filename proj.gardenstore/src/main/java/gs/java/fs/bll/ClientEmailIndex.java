@@ -0,0 +1,114 @@
+package gs.java.fs.bll;
+
+import gs.java.fs.dal.ClientRepository;
+import gs.java.fs.utils.BloomFilter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Index compact des emails clients : un filtre de Bloom répond « nouvel email » sans requête ;
+ * seuls les « peut-être » (doublons réels ou faux positifs) passent par la recherche indexée en base.
+ * Un filtre de Bloom ne sait pas retirer un élément : les emails supprimés ou remplacés restent
+ * comme faux positifs, et le filtre est reconstruit quand ils deviennent trop nombreux
+ * ou que le nombre d'emails dépasse la capacité prévue.
+ */
+@Component
+public class ClientEmailIndex {
+
+    private static final int REBUILD_BATCH = 1000;
+
+    public record Stats(BloomFilter.Stats filtre, long retraits, long verificationsEvitees, long verificationsEnBase) { }
+
+    private final ClientRepository clientRepository;
+    private final long expectedInsertions;
+    private final double fpp;
+    private final double staleRatio;
+    private volatile BloomFilter filter;
+    // filtre en cours de reconstruction : les ajouts concurrents y sont aussi posés
+    private volatile BloomFilter building;
+    private final AtomicBoolean rebuildScheduled = new AtomicBoolean();
+    private final AtomicLong stale = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong lookups = new AtomicLong();
+
+    public ClientEmailIndex(ClientRepository clientRepository,
+                            @Value("${gardenstore.client.email-index.expected-insertions:1000000}") long expectedInsertions,
+                            @Value("${gardenstore.client.email-index.fpp:0.01}") double fpp,
+                            @Value("${gardenstore.client.email-index.stale-ratio:0.1}") double staleRatio) {
+        this.clientRepository = clientRepository;
+        this.expectedInsertions = expectedInsertions;
+        this.fpp = fpp;
+        this.staleRatio = staleRatio;
+        this.filter = new BloomFilter(expectedInsertions, fpp);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() {
+        long count = clientRepository.count();
+        BloomFilter next = new BloomFilter(Math.max(expectedInsertions, count * 2), fpp);
+        building = next;
+        long afterId = 0;
+        List<Object[]> batch;
+        do {
+            batch = clientRepository.findMailPageAfterId(afterId, PageRequest.of(0, REBUILD_BATCH));
+            for (Object[] row : batch) {
+                afterId = (Long) row[0];
+                next.add((String) row[1]);
+            }
+        } while (batch.size() == REBUILD_BATCH);
+        filter = next;
+        building = null;
+        stale.set(0);
+    }
+
+    /**
+     * @return true si un client utilise déjà cet email
+     */
+    public boolean exists(String mail) {
+        if (!filter.mightContain(mail)) {
+            skipped.incrementAndGet();
+            return false;
+        }
+        lookups.incrementAndGet();
+        return clientRepository.existsByMail(mail);
+    }
+
+    public void added(String mail) {
+        filter.add(mail);
+        BloomFilter inProgress = building;
+        if (inProgress != null)
+            inProgress.add(mail);
+        BloomFilter current = filter;
+        if (current.insertions() > current.expectedInsertions())
+            rebuildAsync();
+    }
+
+    public void removed(String mail) {
+        long retraits = stale.incrementAndGet();
+        if (retraits > filter.insertions() * staleRatio)
+            rebuildAsync();
+    }
+
+    public Stats stats() {
+        return new Stats(filter.stats(), stale.get(), skipped.get(), lookups.get());
+    }
+
+    private void rebuildAsync() {
+        if (!rebuildScheduled.compareAndSet(false, true))
+            return;
+        Thread.startVirtualThread(() -> {
+            try {
+                rebuild();
+            } finally {
+                rebuildScheduled.set(false);
+            }
+        });
+    }
+}
@@ -0,0 +1,71 @@
+package gs.java.fs.bll;
+
+import gs.java.fs.utils.BoundedPasswordEncoder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Hache au démarrage les mots de passe encore enregistrés en clair (comptes antérieurs au hachage systématique).
+ * BoundedPasswordEncoder refuse tout mot de passe enregistré qui n'est pas un hash BCrypt : après cette passe,
+ * aucun clair ne permet plus de se connecter.
+ */
+@Component
+public class ClientPasswordMigration {
+
+    private static final Logger log = LoggerFactory.getLogger(ClientPasswordMigration.class);
+
+    private static final int BATCH = 500;
+
+    private static final String PLAINTEXT_SQL = """
+            select client_id, mail, password from client
+            where client_id > :afterId and password not like '$2%'
+            order by client_id limit :batch
+            """;
+    // conditionné à l'ancienne valeur : une modification concurrente du mot de passe n'est pas écrasée
+    private static final String HASH_SQL = """
+            update client set password = :hash where client_id = :id and password = :plaintext
+            """;
+
+    private record Plaintext(long id, String mail, String password) { }
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final BoundedPasswordEncoder passwordEncoder;
+    private final CustomUserDetailsService userDetailsService;
+
+    public ClientPasswordMigration(NamedParameterJdbcTemplate jdbcTemplate, BoundedPasswordEncoder passwordEncoder,
+                                   CustomUserDetailsService userDetailsService) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.passwordEncoder = passwordEncoder;
+        this.userDetailsService = userDetailsService;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public int hashPlaintextPasswords() {
+        long afterId = 0;
+        int migrated = 0;
+        List<Plaintext> batch;
+        do {
+            batch = jdbcTemplate.query(PLAINTEXT_SQL,
+                    new MapSqlParameterSource("afterId", afterId).addValue("batch", BATCH),
+                    (rs, i) -> new Plaintext(rs.getLong("client_id"), rs.getString("mail"), rs.getString("password")));
+            for (Plaintext row : batch) {
+                afterId = row.id();
+                migrated += jdbcTemplate.update(HASH_SQL, new MapSqlParameterSource()
+                        .addValue("hash", passwordEncoder.encode(row.password()))
+                        .addValue("id", row.id())
+                        .addValue("plaintext", row.password()));
+                userDetailsService.evict(row.mail());
+            }
+        } while (batch.size() == BATCH);
+        if (migrated > 0)
+            log.info("{} mots de passe enregistrés en clair ont été hachés", migrated);
+        return migrated;
+    }
+}
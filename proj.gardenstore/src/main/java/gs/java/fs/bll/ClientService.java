@@ -1,6 +1,9 @@
 package gs.java.fs.bll;
 
+import gs.java.fs.api.models.dtos.ClientDTO;
+import gs.java.fs.api.models.form.ClientPatchForm;
 import gs.java.fs.domain.entities.Client;
+import gs.java.fs.utils.KeysetCursor;
 
 import java.util.List;
 
@@ -9,8 +12,12 @@ public interface ClientService {
 
     Client getOne(Long id);
     List<Client> getAll();
+    List<ClientDTO> getAllDTO();
+    ClientDTO getOneDTO(Long id);
+    List<Client> getPage(KeysetCursor after, int limit);
     Client create(Client toCreate);
     Client update(Long id, Client toUpdate);
+    ClientDTO patch(Long id, ClientPatchForm patch);
     Client delete(Long id);
 
 }
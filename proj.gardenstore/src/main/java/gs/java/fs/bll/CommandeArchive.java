@@ -0,0 +1,466 @@
+package gs.java.fs.bll;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import gs.java.fs.api.models.dtos.CommandeDTO;
+import gs.java.fs.api.models.dtos.LigneCommandeDTO;
+import gs.java.fs.domain.entities.Commande;
+import gs.java.fs.domain.entities.LigneCommande;
+import gs.java.fs.domain.entities.Produit;
+import gs.java.fs.domain.entities.StatutCommande;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Archive froide des commandes : chaque mois plus ancien que la rétention est exporté, supprimé de la table
+ * par lots, puis les commandes effectivement supprimées rejoignent le fichier NDJSON compressé du mois,
+ * inscrit au manifeste.
+ * L'export note pour chaque commande une empreinte de son contenu (lignes comprises) ; la purge relit les
+ * commandes sous verrou et ne supprime que celles dont l'empreinte n'a pas changé. Une commande modifiée,
+ * réaffectée ou annulée entre l'export et la purge reste donc en table (ou reste annulée) et n'entre pas
+ * dans l'archive ; celles qui restent sont reprises au passage suivant.
+ * Le manifeste garde pour chaque mois la plage d'ids (pour retrouver une commande archivée sans ouvrir
+ * tous les fichiers) et les cumuls de ventes des commandes archivées (pour que SalesRollup n'oublie pas
+ * les mois archivés).
+ */
+@Component
+public class CommandeArchive {
+
+    private static final Logger log = LoggerFactory.getLogger(CommandeArchive.class);
+
+    private static final String MANIFEST = "manifest.json";
+
+    private static final String MONTHS_SQL = """
+            select distinct cast(date_trunc('month', date_commande) as date) as mois
+            from commande where date_commande < :limite order by mois
+            """;
+    private static final String ROW_SQL = """
+            select c.commande_id, c.montant, c.date_commande, c."quantité", c.n_commande, c.statut, c.delivered_by_livreur_id,
+                   (select coalesce(json_agg(json_build_object('id', l.ligne_id, 'produitId', l.produit_id,
+                                                               'quantite', l."quantité", 'prixUnitaire', l.prix_unitaire)
+                                             order by l.ligne_id), '[]'::json)
+                    from ligne_commande l where l.commande_id = c.commande_id) as lignes
+            from commande c
+            """;
+    private static final String EXPORT_SQL = ROW_SQL + """
+            where c.date_commande >= :debut and c.date_commande < :fin
+            order by c.commande_id
+            """;
+    // les écritures concurrentes (PUT, PATCH, opérations de masse, annulation) attendent ce verrou
+    private static final String LOCK_SQL = ROW_SQL + """
+            where c.commande_id in (:ids)
+            order by c.commande_id
+            for update of c
+            """;
+
+    /**
+     * Une commande telle qu'elle est écrite dans l'archive
+     */
+    public record Row(CommandeDTO commande, Long livreurId, List<LigneCommandeDTO> lignes) {
+
+        // commande détachée, reconstruite pour la lecture seule
+        public Commande toEntity() {
+            Commande entity = new Commande();
+            entity.setId(commande.id());
+            entity.setMontant(commande.montant());
+            entity.setDateCommande(commande.dateCommande());
+            entity.setQuantite(commande.quantite());
+            entity.setNCommande(commande.nCommande());
+            if (commande.statut() != null)
+                entity.setStatut(commande.statut());
+            for (LigneCommandeDTO dto : lignes) {
+                Produit produit = new Produit();
+                produit.setId(dto.produitId());
+                LigneCommande ligne = new LigneCommande();
+                ligne.setId(dto.id());
+                ligne.setCommande(entity);
+                ligne.setProduit(produit);
+                ligne.setQuantite(dto.quantite());
+                ligne.setPrixUnitaire(dto.prixUnitaire());
+                entity.getLignes().add(ligne);
+            }
+            return entity;
+        }
+    }
+
+    public record Month(YearMonth mois, String fichier, long commandes, long minId, long maxId,
+                        List<SalesRollup.Line> totaux) { }
+
+    // fichiers de travail d'un mois en cours d'archivage, conservés jusqu'à la fin pour pouvoir reprendre
+    private record Staging(Path rows, Path ids, Path purged) {
+
+        Staging(Path directory, YearMonth mois) {
+            this(directory.resolve("commande-" + mois + ".export.ndjson.gz"),
+                    directory.resolve("commande-" + mois + ".export.ids"),
+                    directory.resolve("commande-" + mois + ".purgees"));
+        }
+
+        void delete() throws IOException {
+            Files.deleteIfExists(rows);
+            Files.deleteIfExists(ids);
+            Files.deleteIfExists(purged);
+        }
+    }
+
+    // nombre, plage d'ids et cumuls de ventes des commandes d'un fichier d'archive
+    private static final class Cumul {
+        long commandes;
+        long minId = Long.MAX_VALUE;
+        long maxId = Long.MIN_VALUE;
+        final Map<List<Object>, SalesRollup.Line> totaux = new HashMap<>();
+
+        void add(Row row) {
+            CommandeDTO commande = row.commande();
+            commandes++;
+            minId = Math.min(minId, commande.id());
+            maxId = Math.max(maxId, commande.id());
+            long montant = commande.montant() == null ? 0 : commande.montant();
+            long quantite = commande.quantite() == null ? 0 : commande.quantite();
+            totaux.merge(List.of(commande.dateCommande(), row.livreurId() == null ? -1L : row.livreurId()),
+                    new SalesRollup.Line(commande.dateCommande(), 1, montant, quantite, row.livreurId()),
+                    (a, b) -> new SalesRollup.Line(a.date(), a.commandes() + 1, a.montant() + b.montant(),
+                            a.quantite() + b.quantite(), a.livreurId()));
+        }
+    }
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final LivreurAssignment livreurAssignment;
+    private final TransactionTemplate readTransaction;
+    private final TransactionTemplate writeTransaction;
+    private final ObjectMapper objectMapper;
+    private final Path directory;
+    private final boolean enabled;
+    private final int retentionMonths;
+    private final int chunkSize;
+    private volatile List<Month> months;
+
+    public CommandeArchive(DataSource dataSource, PlatformTransactionManager transactionManager, ObjectMapper objectMapper,
+                           LivreurAssignment livreurAssignment,
+                           @Value("${gardenstore.archive.dir:archive/commande}") Path directory,
+                           @Value("${gardenstore.archive.enabled:false}") boolean enabled,
+                           @Value("${gardenstore.archive.retention-months:12}") int retentionMonths,
+                           @Value("${gardenstore.archive.chunk-size:1000}") int chunkSize,
+                           @Value("${gardenstore.export.fetch-size:2000}") int fetchSize) throws IOException {
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        jdbc.setFetchSize(fetchSize);
+        this.jdbcTemplate = new NamedParameterJdbcTemplate(jdbc);
+        this.livreurAssignment = livreurAssignment;
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setReadOnly(true);
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.directory = directory;
+        this.enabled = enabled;
+        this.retentionMonths = retentionMonths;
+        this.chunkSize = chunkSize;
+        Path manifest = directory.resolve(MANIFEST);
+        this.months = Files.exists(manifest)
+                ? List.copyOf(objectMapper.readValue(manifest.toFile(), new TypeReference<List<Month>>() { }))
+                : List.of();
+    }
+
+    public List<Month> months() {
+        return months;
+    }
+
+    /**
+     * Cumuls de ventes des commandes archivées, toutes déjà supprimées de la table
+     */
+    public List<SalesRollup.Line> totals() {
+        return months.stream().flatMap(month -> month.totaux().stream()).toList();
+    }
+
+    /**
+     * Chemin lent : seuls les fichiers dont la plage d'ids contient l'id sont parcourus.
+     */
+    public Optional<Row> find(Long id) {
+        for (Month month : months) {
+            if (id < month.minId() || id > month.maxId())
+                continue;
+            try (InputStream in = new GZIPInputStream(Files.newInputStream(directory.resolve(month.fichier())));
+                 MappingIterator<Row> rows = objectMapper.readerFor(Row.class).readValues(in)) {
+                while (rows.hasNextValue()) {
+                    Row row = rows.nextValue();
+                    if (id.equals(row.commande().id()))
+                        return Optional.of(row);
+                }
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+        return Optional.empty();
+    }
+
+    @Scheduled(cron = "${gardenstore.archive.cron:0 30 3 * * *}")
+    public void archiveExpired() throws IOException {
+        if (!enabled)
+            return;
+        LocalDate limite = YearMonth.now().minusMonths(retentionMonths).atDay(1);
+        List<LocalDate> candidats = readTransaction.execute(status -> jdbcTemplate.queryForList(
+                MONTHS_SQL, new MapSqlParameterSource("limite", limite), LocalDate.class));
+        for (LocalDate debut : candidats)
+            archive(YearMonth.from(debut));
+    }
+
+    /**
+     * Archive ce qui reste d'un mois dans la table. Relancer après une interruption reprend la purge
+     * de l'export en cours sans le refaire.
+     */
+    public synchronized Month archive(YearMonth mois) throws IOException {
+        Files.createDirectories(directory);
+        Staging staging = new Staging(directory, mois);
+        // le fichier d'ids n'apparaît qu'une fois l'export complet
+        if (!Files.exists(staging.ids()) && export(mois, staging) == 0)
+            return current(mois).orElse(new Month(mois, null, 0, 0, 0, List.of()));
+        Set<Long> kept = purge(staging);
+        Month month = finish(mois, staging, kept);
+        log.info("mois {} archivé : {} commandes dans {}, {} laissées en table (modifiées depuis l'export)",
+                mois, month.commandes(), month.fichier(), kept.size());
+        return month;
+    }
+
+    private long export(YearMonth mois, Staging staging) throws IOException {
+        Path rowsPart = Path.of(staging.rows() + ".part");
+        Path idsPart = Path.of(staging.ids() + ".part");
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("debut", mois.atDay(1))
+                .addValue("fin", mois.plusMonths(1).atDay(1));
+        long[] count = {0};
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(rowsPart));
+             BufferedWriter ids = Files.newBufferedWriter(idsPart);
+             SequenceWriter writer = objectMapper.writer()
+                     .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                     .withRootValueSeparator("\n")
+                     .writeValues(out)) {
+            readTransaction.executeWithoutResult(status -> jdbcTemplate.query(EXPORT_SQL, params, rs -> {
+                try {
+                    Row row = row(rs);
+                    writer.write(row);
+                    ids.write(row.commande().id() + " " + fingerprint(row));
+                    ids.newLine();
+                    count[0]++;
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            }));
+            // le générateur garde la fin du dernier enregistrement : on le vide avant d'écrire dans le flux
+            writer.flush();
+            out.write('\n');
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+        if (count[0] == 0) {
+            Files.delete(rowsPart);
+            Files.delete(idsPart);
+            return 0;
+        }
+        Files.move(rowsPart, staging.rows(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        Files.move(idsPart, staging.ids(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return count[0];
+    }
+
+    /**
+     * Une transaction courte par lot : les verrous et le WAL restent petits.
+     * @return les ids exportés restés en table parce que leur contenu a changé depuis l'export
+     */
+    private Set<Long> purge(Staging staging) throws IOException {
+        Set<Long> kept = new HashSet<>();
+        try (BufferedReader reader = Files.newBufferedReader(staging.ids())) {
+            Map<Long, String> chunk = new LinkedHashMap<>();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank())
+                    continue;
+                String[] fields = line.trim().split(" ");
+                chunk.put(Long.valueOf(fields[0]), fields[1]);
+                if (chunk.size() == chunkSize) {
+                    delete(staging, chunk, kept);
+                    chunk.clear();
+                }
+            }
+            if (!chunk.isEmpty())
+                delete(staging, chunk, kept);
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+        return kept;
+    }
+
+    private void delete(Staging staging, Map<Long, String> exported, Set<Long> kept) {
+        writeTransaction.executeWithoutResult(status -> {
+            // une commande déjà absente a été supprimée par une purge interrompue ou annulée depuis l'export :
+            // le fichier des ids purgés dira laquelle des deux
+            List<Long> unchanged = new ArrayList<>();
+            jdbcTemplate.query(LOCK_SQL, new MapSqlParameterSource("ids", exported.keySet()), rs -> {
+                try {
+                    Row row = row(rs);
+                    Long id = row.commande().id();
+                    if (fingerprint(row).equals(exported.get(id)))
+                        unchanged.add(id);
+                    else
+                        kept.add(id);
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+            if (unchanged.isEmpty())
+                return;
+            MapSqlParameterSource idParams = new MapSqlParameterSource("ids", unchanged);
+            jdbcTemplate.update("delete from ligne_commande where commande_id in (:ids)", idParams);
+            // une commande non livrée quitte aussi la charge de son livreur
+            jdbcTemplate.query(
+                    "delete from commande where commande_id in (:ids) returning delivered_by_livreur_id, code_postal, statut",
+                    idParams, rs -> {
+                        if (!"LIVREE".equals(rs.getString("statut")))
+                            livreurAssignment.adjustAfterCommit(rs.getObject("delivered_by_livreur_id", Long.class),
+                                    rs.getObject("code_postal", Integer.class), -1);
+                    });
+            // écrit avant le commit : un id noté mais dont la suppression a été annulée est encore en table,
+            // il est réexaminé à la reprise
+            try {
+                Files.write(staging.purged(), unchanged.stream().map(String::valueOf).toList(),
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.DSYNC);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        });
+    }
+
+    // nouveau fichier du mois : l'archive précédente plus les commandes exportées et effectivement supprimées
+    private Month finish(YearMonth mois, Staging staging, Set<Long> kept) throws IOException {
+        Set<Long> purged = new HashSet<>();
+        if (Files.exists(staging.purged())) {
+            for (String line : Files.readAllLines(staging.purged())) {
+                if (!line.isBlank())
+                    purged.add(Long.valueOf(line.trim()));
+            }
+        }
+        purged.removeAll(kept);
+
+        Month previous = current(mois).orElse(null);
+        String fichier = "commande-" + mois + "-" + System.currentTimeMillis() + ".ndjson.gz";
+        Path part = directory.resolve(fichier + ".part");
+        Cumul cumul = new Cumul();
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(part));
+             SequenceWriter writer = objectMapper.writer()
+                     .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                     .withRootValueSeparator("\n")
+                     .writeValues(out)) {
+            if (previous != null)
+                copy(directory.resolve(previous.fichier()), null, writer, cumul);
+            copy(staging.rows(), purged, writer, cumul);
+            writer.flush();
+            out.write('\n');
+        }
+        if (cumul.commandes == 0) {
+            Files.delete(part);
+            staging.delete();
+            return new Month(mois, null, 0, 0, 0, List.of());
+        }
+        Files.move(part, directory.resolve(fichier), StandardCopyOption.ATOMIC_MOVE);
+        Month month = new Month(mois, fichier, cumul.commandes, cumul.minId, cumul.maxId, List.copyOf(cumul.totaux.values()));
+        replace(month);
+        if (previous != null)
+            Files.deleteIfExists(directory.resolve(previous.fichier()));
+        staging.delete();
+        return month;
+    }
+
+    // recopie les commandes d'un fichier d'archive, toutes ou seulement celles de ids
+    private void copy(Path file, Set<Long> ids, SequenceWriter writer, Cumul cumul) throws IOException {
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(file));
+             MappingIterator<Row> rows = objectMapper.readerFor(Row.class).readValues(in)) {
+            while (rows.hasNextValue()) {
+                Row row = rows.nextValue();
+                if (ids != null && !ids.contains(row.commande().id()))
+                    continue;
+                writer.write(row);
+                cumul.add(row);
+            }
+        }
+    }
+
+    private Row row(ResultSet rs) throws SQLException, IOException {
+        Date date = rs.getDate("date_commande");
+        CommandeDTO commande = new CommandeDTO(
+                rs.getLong("commande_id"),
+                rs.getObject("montant", Integer.class),
+                date == null ? null : date.toLocalDate(),
+                rs.getObject("quantité", Integer.class),
+                rs.getObject("n_commande", Integer.class),
+                StatutCommande.valueOf(rs.getString("statut"))
+        );
+        List<LigneCommandeDTO> lignes = objectMapper.readValue(rs.getString("lignes"),
+                new TypeReference<List<LigneCommandeDTO>>() { });
+        return new Row(commande, rs.getObject("delivered_by_livreur_id", Long.class), lignes);
+    }
+
+    // empreinte du contenu exporté : toute modification de la commande ou de ses lignes la change
+    private String fingerprint(Row row) throws IOException {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(objectMapper.writeValueAsBytes(row));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private Optional<Month> current(YearMonth mois) {
+        return months.stream().filter(m -> m.mois().equals(mois)).findFirst();
+    }
+
+    private void replace(Month month) throws IOException {
+        List<Month> updated = new ArrayList<>(months);
+        updated.removeIf(m -> m.mois().equals(month.mois()));
+        updated.add(month);
+        writeManifest(updated);
+        months = List.copyOf(updated);
+    }
+
+    private void writeManifest(List<Month> updated) throws IOException {
+        Path tmp = directory.resolve(MANIFEST + ".tmp");
+        objectMapper.writeValue(tmp.toFile(), updated);
+        Files.move(tmp, directory.resolve(MANIFEST), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,15 @@
+package gs.java.fs.bll;
+
+import gs.java.fs.api.models.form.CommandeBulkForm;
+
+import java.util.function.Consumer;
+
+public interface CommandeBulkService {
+
+    /**
+     * Contrôles faits avant de commencer, pour répondre en erreur plutôt qu'au milieu du flux de progression
+     */
+    void check(CommandeBulkForm form);
+    BulkProgress run(CommandeBulkForm form, Consumer<BulkProgress> progress);
+
+}
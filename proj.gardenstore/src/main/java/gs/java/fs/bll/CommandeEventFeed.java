@@ -0,0 +1,220 @@
+package gs.java.fs.bll;
+
+import gs.java.fs.api.models.dtos.CommandeDTO;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Flux SSE des changements de commandes.
+ * Les événements sont publiés après commit dans un tampon circulaire borné ; chaque abonné avance
+ * à son rythme avec son propre curseur. Les envois se font sur un pool borné de threads plateforme
+ * (jamais plus d'un envoi à la fois par abonné) : l'écriture bloquante se fait sous le moniteur de l'émetteur,
+ * ce qui épinglerait un thread virtuel à son porteur. Les identifiants d'événements sont préfixés par l'époque
+ * de démarrage ("époque-numéro") : un abonné distancé de plus d'un tour de tampon, ou dont le Last-Event-ID
+ * vient d'une autre époque (avant un redémarrage), reçoit "reset" et est déconnecté. Un abonné dont un envoi
+ * dure plus que send-timeout est abandonné.
+ */
+@Component
+public class CommandeEventFeed {
+
+    public enum Type { CREEE, MODIFIEE, ANNULEE }
+
+    public record Event(long id, Type type, CommandeDTO commande) { }
+
+    private final class Subscriber {
+        final SseEmitter emitter;
+        final AtomicBoolean sending = new AtomicBoolean();
+        volatile long cursor;
+        volatile boolean ping;
+        volatile boolean reset;
+        // début de l'envoi en cours (System.nanoTime), 0 hors envoi
+        volatile long sendingSince;
+
+        Subscriber(SseEmitter emitter, long cursor) {
+            this.emitter = emitter;
+            this.cursor = cursor;
+        }
+    }
+
+    private final long epoch = System.currentTimeMillis();
+    private final int capacity;
+    private final long timeoutMillis;
+    private final long sendTimeoutNanos;
+    private final AtomicReferenceArray<Event> buffer;
+    private final AtomicLong head = new AtomicLong();
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final ExecutorService senders;
+
+    public CommandeEventFeed(@Value("${gardenstore.commande.stream.buffer-size:4096}") int capacity,
+                             @Value("${gardenstore.commande.stream.timeout:PT30M}") Duration timeout,
+                             @Value("${gardenstore.commande.stream.send-timeout:PT10S}") Duration sendTimeout,
+                             @Value("${gardenstore.commande.stream.sender-threads:16}") int senderThreads) {
+        this.capacity = capacity;
+        this.timeoutMillis = timeout.toMillis();
+        this.sendTimeoutNanos = sendTimeout.toNanos();
+        this.buffer = new AtomicReferenceArray<>(capacity);
+        this.senders = Executors.newFixedThreadPool(senderThreads, Thread.ofPlatform().name("commande-stream-", 0).daemon().factory());
+    }
+
+    /**
+     * Publie l'événement une fois la transaction courante validée, ou tout de suite hors transaction.
+     */
+    public void publishAfterCommit(Type type, CommandeDTO commande) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            publish(type, commande);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                publish(type, commande);
+            }
+        });
+    }
+
+    /**
+     * @param lastEventId dernier événement reçu par le client (en-tête Last-Event-ID), null pour ne recevoir que la suite
+     */
+    public SseEmitter subscribe(String lastEventId) {
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        long current = head.get();
+        long last = lastEventId == null ? current : sequence(lastEventId);
+        Subscriber subscriber = new Subscriber(emitter, last < 0 || last > current ? current : last);
+        // identifiant jamais émis par ce tampon (autre époque, illisible) : on ne sait pas ce que le client a manqué
+        subscriber.reset = last < 0 || last > current;
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(ex -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+        schedule(subscriber);
+        return emitter;
+    }
+
+    public int subscriberCount() {
+        return subscribers.size();
+    }
+
+    // commentaire périodique : garde la connexion ouverte derrière les proxies et détecte les clients partis
+    @Scheduled(fixedDelayString = "${gardenstore.commande.stream.heartbeat-ms:15000}")
+    public void heartbeat() {
+        long now = System.nanoTime();
+        for (Subscriber subscriber : subscribers) {
+            long since = subscriber.sendingSince;
+            if (since != 0 && now - since > sendTimeoutNanos) {
+                // completeWithError attend le moniteur tenu par l'envoi bloqué, jusqu'à ce que le conteneur abandonne
+                // l'écriture : ni le heartbeat ni un thread d'envoi ne doivent l'attendre
+                subscribers.remove(subscriber);
+                Thread.ofPlatform().name("commande-stream-abandon").daemon()
+                        .start(() -> subscriber.emitter.completeWithError(new IOException("client SSE trop lent")));
+                continue;
+            }
+            subscriber.ping = true;
+            schedule(subscriber);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        senders.shutdownNow();
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+    }
+
+    private synchronized void publish(Type type, CommandeDTO commande) {
+        long id = head.get() + 1;
+        buffer.set(index(id), new Event(id, type, commande));
+        head.set(id);
+        subscribers.forEach(this::schedule);
+    }
+
+    private void schedule(Subscriber subscriber) {
+        if (subscriber.sending.compareAndSet(false, true))
+            senders.execute(() -> drain(subscriber));
+    }
+
+    private void drain(Subscriber subscriber) {
+        try {
+            long last = head.get();
+            if (subscriber.reset) {
+                reset(subscriber, last);
+                return;
+            }
+            if (subscriber.ping) {
+                subscriber.ping = false;
+                send(subscriber, SseEmitter.event().comment("ping"));
+            }
+            for (long id = subscriber.cursor + 1; id <= last && subscribers.contains(subscriber); id++) {
+                Event event = buffer.get(index(id));
+                if (last - id >= capacity || event == null || event.id() != id) {
+                    // l'abonné a perdu des événements : il doit relire l'état complet
+                    reset(subscriber, last);
+                    return;
+                }
+                send(subscriber, SseEmitter.event()
+                        .id(eventId(id))
+                        .name(event.type().name())
+                        .data(event.commande()));
+                subscriber.cursor = id;
+            }
+        } catch (IOException | IllegalStateException ex) {
+            subscribers.remove(subscriber);
+            subscriber.emitter.completeWithError(ex);
+            return;
+        } finally {
+            subscriber.sending.set(false);
+        }
+        // un événement a pu arriver pendant l'envoi sans pouvoir reprogrammer l'abonné
+        if ((head.get() > subscriber.cursor || subscriber.ping) && subscribers.contains(subscriber))
+            schedule(subscriber);
+    }
+
+    private void send(Subscriber subscriber, SseEmitter.SseEventBuilder event) throws IOException {
+        subscriber.sendingSince = System.nanoTime();
+        try {
+            subscriber.emitter.send(event);
+        } finally {
+            subscriber.sendingSince = 0;
+        }
+    }
+
+    private void reset(Subscriber subscriber, long last) throws IOException {
+        subscribers.remove(subscriber);
+        // l'identifiant courant permet au client de reprendre sans nouveau reset une fois l'état relu
+        send(subscriber, SseEmitter.event().id(eventId(last)).name("reset").data(last));
+        subscriber.emitter.complete();
+    }
+
+    private String eventId(long id) {
+        return epoch + "-" + id;
+    }
+
+    // numéro d'événement de cette époque, -1 si l'identifiant vient d'une autre époque ou est illisible
+    private long sequence(String eventId) {
+        int dash = eventId.indexOf('-');
+        if (dash < 0 || !eventId.substring(0, dash).equals(Long.toString(epoch)))
+            return -1;
+        try {
+            return Long.parseLong(eventId.substring(dash + 1));
+        } catch (NumberFormatException ex) {
+            return -1;
+        }
+    }
+
+    private int index(long id) {
+        return (int) (id % capacity);
+    }
+}
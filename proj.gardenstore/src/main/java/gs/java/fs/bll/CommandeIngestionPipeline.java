@@ -0,0 +1,133 @@
+package gs.java.fs.bll;
+
+import gs.java.fs.api.models.form.CommandeForm;
+import gs.java.fs.domain.entities.Commande;
+import gs.java.fs.utils.BoundedCache;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Enregistrement asynchrone des commandes : les commandes validées attendent dans une file bornée
+ * et un unique rédacteur les persiste par lots, une transaction (donc un commit) par lot.
+ * Plus la charge est forte, plus les lots sont gros.
+ */
+@Component
+public class CommandeIngestionPipeline {
+
+    private static final Logger log = LoggerFactory.getLogger(CommandeIngestionPipeline.class);
+
+    public enum State { EN_ATTENTE, ENREGISTREE, ECHEC }
+
+    public record Status(UUID trackingId, State state, Long commandeId, String erreur) { }
+
+    // on garde le formulaire et non l'entité : chaque tentative repart d'une commande vierge
+    private record Pending(UUID trackingId, CommandeForm form) { }
+
+    private final CommandeService commandeService;
+    private final boolean enabled;
+    private final int batchSize;
+    private final BlockingQueue<Pending> queue;
+    private final BoundedCache<UUID, Status> statuses;
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    public CommandeIngestionPipeline(CommandeService commandeService,
+                                     @Value("${gardenstore.commande.async.enabled:false}") boolean enabled,
+                                     @Value("${gardenstore.commande.async.queue-capacity:10000}") int queueCapacity,
+                                     @Value("${gardenstore.commande.async.batch-size:500}") int batchSize,
+                                     @Value("${gardenstore.commande.async.status-ttl:PT1H}") Duration statusTtl) {
+        this.commandeService = commandeService;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.statuses = new BoundedCache<>(queueCapacity * 10, statusTtl);
+        this.writer = new Thread(this::drain, "commande-ingestion");
+        if (enabled)
+            writer.start();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return l'identifiant de suivi, vide si la file est pleine
+     */
+    public Optional<UUID> submit(CommandeForm form) {
+        Pending pending = new Pending(UUID.randomUUID(), form);
+        statuses.put(pending.trackingId(), new Status(pending.trackingId(), State.EN_ATTENTE, null, null));
+        if (!queue.offer(pending)) {
+            statuses.invalidate(pending.trackingId());
+            return Optional.empty();
+        }
+        return Optional.of(pending.trackingId());
+    }
+
+    public Optional<Status> status(UUID trackingId) {
+        return Optional.ofNullable(statuses.get(trackingId));
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        writer.join(TimeUnit.SECONDS.toMillis(30));
+    }
+
+    private void drain() {
+        while (running || !queue.isEmpty()) {
+            try {
+                drainOnce(100);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException ex) {
+                log.error("échec inattendu de l'enregistrement asynchrone des commandes", ex);
+            }
+        }
+    }
+
+    // un lot : la première commande attendue au plus timeoutMillis, puis tout ce qui est déjà en file
+    void drainOnce(long timeoutMillis) throws InterruptedException {
+        Pending first = queue.poll(timeoutMillis, TimeUnit.MILLISECONDS);
+        if (first == null)
+            return;
+        List<Pending> batch = new ArrayList<>(batchSize);
+        batch.add(first);
+        queue.drainTo(batch, batchSize - 1);
+        write(batch);
+    }
+
+    private void write(List<Pending> batch) {
+        try {
+            List<Commande> saved = commandeService.registerAll(batch.stream().map(pending -> pending.form().toEntity()).toList());
+            for (int i = 0; i < batch.size(); i++)
+                done(batch.get(i), saved.get(i));
+        } catch (RuntimeException ex) {
+            // lot refusé : on isole la ou les commandes fautives en les rejouant une par une,
+            // à partir d'entités reconstruites (la tentative annulée a pu affecter un livreur, des prix, des ids)
+            for (Pending pending : batch) {
+                try {
+                    done(pending, commandeService.register(pending.form().toEntity()));
+                } catch (RuntimeException e) {
+                    statuses.put(pending.trackingId(), new Status(pending.trackingId(), State.ECHEC, null, e.getMessage()));
+                }
+            }
+        }
+    }
+
+    private void done(Pending pending, Commande saved) {
+        statuses.put(pending.trackingId(), new Status(pending.trackingId(), State.ENREGISTREE, saved.getId(), null));
+    }
+}
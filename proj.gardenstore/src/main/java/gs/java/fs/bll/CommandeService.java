@@ -1,14 +1,28 @@
 package gs.java.fs.bll;
 
+import gs.java.fs.api.models.dtos.CommandeDTO;
+import gs.java.fs.api.models.dtos.LigneCommandeDTO;
+import gs.java.fs.api.models.form.CommandePatchForm;
 import gs.java.fs.domain.entities.Commande;
+import gs.java.fs.utils.KeysetCursor;
 
+import java.time.LocalDate;
 import java.util.List;
 
 public interface CommandeService {
 
     Commande register(Commande commande);
+    List<Commande> registerAll(List<Commande> commandes);
     List<Commande> getAll();
+    List<CommandeDTO> getAllDTO();
+    CommandeDTO getOneDTO(Long id);
+    List<Commande> getPage(KeysetCursor after, int limit);
+    List<CommandeDTO> getByDateRange(LocalDate from, LocalDate to, Long livreurId, KeysetCursor after, int limit);
     Commande getOne(Long id);
+    List<LigneCommandeDTO> getLignes(Long id);
     boolean cancel (Long id);
     Commande update(Long id, Commande commande);
+    SalesRollup.Stats stats(LocalDate from, LocalDate to);
+    void rebuildStats();
+    CommandeDTO patch(Long id, CommandePatchForm patch);
 }
\ No newline at end of file
@@ -1,24 +1,52 @@
 package gs.java.fs.bll;
 
 import gs.java.fs.dal.ClientRepository;
+import gs.java.fs.utils.BoundedCache;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 @Service
-public class CustomUserDetailsService implements UserDetailsService {
+public class CustomUserDetailsService implements UserDetailsService, UserDetailsPasswordService {
 
     private final ClientRepository clientRepository;
+    private final BoundedCache<String, ClientCredentials> credentialsCache;
 
-    public CustomUserDetailsService(ClientRepository clientRepository) {
+    public CustomUserDetailsService(ClientRepository clientRepository,
+                                    BoundedCache<String, ClientCredentials> credentialsCache) {
         this.clientRepository = clientRepository;
+        this.credentialsCache = credentialsCache;
     }
 
     @Override
     public UserDetails loadUserByUsername(String email) throws UsernameNotFoundException {
-        var optional = clientRepository.findClientByEmail(email);
-        return optional.orElseThrow(() -> new UsernameNotFoundException("User not found"));
+        // les comptes actifs sont servis depuis le cache ; ClientServiceImpl l'invalide à chaque modification
+        ClientCredentials credentials = credentialsCache.getOrLoad(email,
+                mail -> clientRepository.findCredentialsByEmail(mail).orElse(null));
+        if (credentials == null)
+            throw new UsernameNotFoundException("User not found");
+        return credentials;
     }
 
-}
\ No newline at end of file
+    /**
+     * Appelé par Spring Security après une connexion réussie dont le hash doit être refait (coût modifié, clair)
+     */
+    @Override
+    @Transactional
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        ClientCredentials credentials = (ClientCredentials) user;
+        clientRepository.updatePassword(credentials.mail(), newPassword);
+        ClientCredentials updated = new ClientCredentials(credentials.id(), credentials.mail(), newPassword);
+        credentialsCache.put(updated.mail(), updated);
+        return updated;
+    }
+
+    public void evict(String email) {
+        if (email != null)
+            credentialsCache.invalidate(email);
+    }
+
+}
@@ -0,0 +1,11 @@
+package gs.java.fs.bll;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+public interface ExportService {
+
+    void exportProduits(OutputStream out) throws IOException;
+    void exportCommandes(OutputStream out) throws IOException;
+
+}
@@ -0,0 +1,13 @@
+package gs.java.fs.bll;
+
+import java.util.List;
+
+public record ImportReport(
+        long rows,
+        long imported,
+        List<RowError> errors,
+        long durationMillis,
+        double rowsPerSecond
+) {
+    public record RowError(long line, String message) { }
+}
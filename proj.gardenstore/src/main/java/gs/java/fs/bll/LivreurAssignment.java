@@ -0,0 +1,212 @@
+package gs.java.fs.bll;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Affectation automatique des commandes au livreur le moins chargé.
+ * La charge d'un livreur est son nombre de commandes non livrées ; elle est tenue en mémoire dans un
+ * ensemble trié (charge, id), donc choisir un livreur coûte O(log n) sans agrégat SQL.
+ * Affinité optionnelle : un livreur qui a déjà des commandes dans le même code postal est préféré
+ * tant que sa charge ne dépasse pas le minimum de plus de {@code affinity-slack}.
+ */
+@Component
+public class LivreurAssignment {
+
+    public record Charge(Long livreurId, int commandes) { }
+
+    private record Slot(int load, long livreurId) { }
+
+    private static final class State {
+        final long livreurId;
+        int load;
+
+        State(long livreurId) {
+            this.livreurId = livreurId;
+        }
+    }
+
+    private static final Slot FIRST = new Slot(Integer.MIN_VALUE, Long.MIN_VALUE);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    private final boolean affinity;
+    private final int affinitySlack;
+    private final ConcurrentHashMap<Long, State> livreurs = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListSet<Slot> byLoad = new ConcurrentSkipListSet<>(
+            Comparator.comparingInt(Slot::load).thenComparingLong(Slot::livreurId));
+    // code postal -> livreur -> commandes non livrées dans ce code postal
+    private final ConcurrentHashMap<Integer, ConcurrentHashMap<Long, AtomicInteger>> zones = new ConcurrentHashMap<>();
+
+    public LivreurAssignment(JdbcTemplate jdbcTemplate,
+                             @Value("${gardenstore.assignment.enabled:true}") boolean enabled,
+                             @Value("${gardenstore.assignment.affinity:true}") boolean affinity,
+                             @Value("${gardenstore.assignment.affinity-slack:2}") int affinitySlack) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+        this.affinity = affinity;
+        this.affinitySlack = affinitySlack;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() {
+        livreurs.clear();
+        byLoad.clear();
+        zones.clear();
+        for (Long id : jdbcTemplate.queryForList("select livreur_id from livreur", Long.class))
+            addLivreur(id);
+        jdbcTemplate.query("""
+                select delivered_by_livreur_id, code_postal, count(*) as commandes from commande
+                where delivered_by_livreur_id is not null and statut <> 'LIVREE'
+                group by delivered_by_livreur_id, code_postal
+                """, rs -> {
+            Integer codePostal = rs.getObject("code_postal", Integer.class);
+            move(rs.getLong("delivered_by_livreur_id"), codePostal, rs.getInt("commandes"));
+        });
+    }
+
+    /**
+     * Choisit un livreur et lui compte la commande. Si la transaction courante est annulée, la charge est rendue.
+     * @return l'id du livreur, null si aucun livreur n'est disponible
+     */
+    public Long assign(Integer codePostal) {
+        if (!enabled)
+            return null;
+        while (true) {
+            Slot least = byLoad.ceiling(FIRST);
+            if (least == null)
+                return null;
+            Long choisi = least.livreurId();
+            int cible = least.load();
+            if (affinity && codePostal != null) {
+                Slot proche = nearest(codePostal);
+                if (proche != null && proche.load() <= least.load() + affinitySlack) {
+                    choisi = proche.livreurId();
+                    cible = proche.load();
+                }
+            }
+            State state = livreurs.get(choisi);
+            if (state == null)
+                continue;
+            synchronized (state) {
+                // la charge a bougé depuis la lecture : on recommence avec l'état à jour
+                if (state.load != cible)
+                    continue;
+                shift(state, 1);
+            }
+            zone(codePostal, choisi, 1);
+            onRollback(choisi, codePostal, -1);
+            return choisi;
+        }
+    }
+
+    /**
+     * Retire (delta négatif) ou ajoute une commande à la charge d'un livreur, une fois la transaction validée.
+     */
+    public void adjustAfterCommit(Long livreurId, Integer codePostal, int delta) {
+        if (livreurId == null || delta == 0)
+            return;
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            move(livreurId, codePostal, delta);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                move(livreurId, codePostal, delta);
+            }
+        });
+    }
+
+    public void addLivreur(Long livreurId) {
+        State state = new State(livreurId);
+        if (livreurs.putIfAbsent(livreurId, state) == null)
+            byLoad.add(new Slot(0, livreurId));
+    }
+
+    public void removeLivreur(Long livreurId) {
+        State state = livreurs.remove(livreurId);
+        if (state == null)
+            return;
+        synchronized (state) {
+            byLoad.remove(new Slot(state.load, livreurId));
+        }
+        zones.values().forEach(zone -> zone.remove(livreurId));
+    }
+
+    public List<Charge> charges() {
+        return byLoad.stream().map(slot -> new Charge(slot.livreurId(), slot.load())).toList();
+    }
+
+    private Slot nearest(Integer codePostal) {
+        Map<Long, AtomicInteger> zone = zones.get(codePostal);
+        if (zone == null)
+            return null;
+        Slot best = null;
+        for (Map.Entry<Long, AtomicInteger> entry : zone.entrySet()) {
+            State state = livreurs.get(entry.getKey());
+            if (entry.getValue().get() <= 0 || state == null)
+                continue;
+            int load;
+            synchronized (state) {
+                load = state.load;
+            }
+            if (best == null || load < best.load())
+                best = new Slot(load, state.livreurId);
+        }
+        return best;
+    }
+
+    private void move(long livreurId, Integer codePostal, int delta) {
+        State state = livreurs.get(livreurId);
+        if (state == null)
+            return;
+        synchronized (state) {
+            shift(state, delta);
+        }
+        zone(codePostal, livreurId, delta);
+    }
+
+    // appelé sous le verrou de l'état : retrait puis réinsertion à la nouvelle charge
+    private void shift(State state, int delta) {
+        byLoad.remove(new Slot(state.load, state.livreurId));
+        state.load = Math.max(0, state.load + delta);
+        byLoad.add(new Slot(state.load, state.livreurId));
+    }
+
+    private void zone(Integer codePostal, long livreurId, int delta) {
+        if (codePostal == null)
+            return;
+        zones.computeIfAbsent(codePostal, k -> new ConcurrentHashMap<>())
+                .computeIfAbsent(livreurId, k -> new AtomicInteger())
+                .addAndGet(delta);
+    }
+
+    private void onRollback(long livreurId, Integer codePostal, int delta) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive())
+            return;
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED)
+                    move(livreurId, codePostal, delta);
+            }
+        });
+    }
+}
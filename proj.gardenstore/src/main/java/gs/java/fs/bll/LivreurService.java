@@ -1,13 +1,23 @@
 package gs.java.fs.bll;
 
+import gs.java.fs.api.models.dtos.LivreurDTO;
+import gs.java.fs.domain.entities.Commande;
 import gs.java.fs.domain.entities.Livreur;
+import gs.java.fs.utils.KeysetCursor;
 
 import java.util.List;
 
 public interface LivreurService {
     Livreur getOne(Long id);
     List<Livreur> getAll();
+    List<LivreurDTO> getAllDTO();
+    LivreurDTO getOneDTO(Long id);
+    List<Livreur> getPage(KeysetCursor after, int limit);
     Livreur update(Long id, Livreur livreur);
     Livreur delete(Long id);
     Livreur add(Livreur livreur);
+    List<Commande> getCommandes(Long id);
+    String etag(Long id);
+    String collectionEtag();
+    List<LivreurAssignment.Charge> charges();
 }
@@ -0,0 +1,51 @@
+package gs.java.fs.bll;
+
+import gs.java.fs.utils.RateLimiter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limite les tentatives de connexion par adresse IP et par email, avant tout accès à la base ou hachage.
+ */
+@Component
+public class LoginRateLimiter {
+
+    public record Stats(RateLimiter.Stats parIp, RateLimiter.Stats parEmail) { }
+
+    private final RateLimiter byIp;
+    private final RateLimiter byEmail;
+
+    public LoginRateLimiter(@Value("${gardenstore.login.rate-limit.ip.capacity:20}") int ipCapacity,
+                            @Value("${gardenstore.login.rate-limit.ip.period:PT1M}") Duration ipPeriod,
+                            @Value("${gardenstore.login.rate-limit.email.capacity:5}") int emailCapacity,
+                            @Value("${gardenstore.login.rate-limit.email.period:PT1M}") Duration emailPeriod,
+                            @Value("${gardenstore.login.rate-limit.max-keys:100000}") int maxKeys) {
+        this.byIp = new RateLimiter(ipCapacity, ipPeriod, maxKeys);
+        this.byEmail = new RateLimiter(emailCapacity, emailPeriod, maxKeys);
+    }
+
+    /**
+     * @return 0 si la tentative est autorisée, sinon le Retry-After en secondes
+     */
+    public long check(String ip, String email) {
+        long wait = byIp.tryAcquire(ip);
+        if (wait == 0 && email != null)
+            wait = byEmail.tryAcquire(email.trim().toLowerCase(Locale.ROOT));
+        return wait == 0 ? 0 : Math.max(1, TimeUnit.NANOSECONDS.toSeconds(wait) + 1);
+    }
+
+    @Scheduled(fixedDelayString = "${gardenstore.login.rate-limit.sweep-ms:10000}")
+    public void evictIdle() {
+        byIp.evictIdle();
+        byEmail.evictIdle();
+    }
+
+    public Stats stats() {
+        return new Stats(byIp.stats(), byEmail.stats());
+    }
+}
@@ -0,0 +1,11 @@
+package gs.java.fs.bll;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+public interface ProduitImportService {
+
+    ImportReport importNdjson(InputStream input) throws IOException;
+    ImportReport importCsv(InputStream input) throws IOException;
+
+}
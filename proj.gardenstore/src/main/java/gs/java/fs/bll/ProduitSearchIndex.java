@@ -0,0 +1,201 @@
+package gs.java.fs.bll;
+
+import gs.java.fs.dal.ProduitRepository;
+import gs.java.fs.domain.entities.Produit;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * Index inversé en mémoire sur le nom et l'avis des produits.
+ * Les termes sont mis en minuscules et débarrassés de leurs accents ("sécateur" = "secateur").
+ */
+@Component
+public class ProduitSearchIndex {
+
+    private static final int NOM_WEIGHT = 3;
+    private static final int AVIS_WEIGHT = 1;
+    private static final int REBUILD_BATCH = 1000;
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private record Hit(long id, double score) { }
+
+    private final ProduitRepository produitRepository;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // terme -> (id produit -> poids du terme dans ce produit)
+    private Map<String, Map<Long, Integer>> postings = new HashMap<>();
+    // id produit -> termes indexés, pour pouvoir le retirer de l'index
+    private Map<Long, Set<String>> documents = new HashMap<>();
+    // modifications reçues pendant une reconstruction, rejouées sur le nouvel index (null = produit retiré)
+    private Map<Long, Produit> pendant;
+
+    public ProduitSearchIndex(ProduitRepository produitRepository) {
+        this.produitRepository = produitRepository;
+    }
+
+    /**
+     * Recharge le catalogue dans un index neuf, sans verrou : les recherches continuent sur l'ancien
+     * index pendant la lecture en base, seul l'échange final se fait sous le verrou d'écriture.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() {
+        lock.writeLock().lock();
+        try {
+            pendant = new HashMap<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        Map<String, Map<Long, Integer>> newPostings = new HashMap<>();
+        Map<Long, Set<String>> newDocuments = new HashMap<>();
+        try {
+            long afterId = 0;
+            List<Produit> batch;
+            do {
+                batch = produitRepository.findPageAfterId(afterId, PageRequest.of(0, REBUILD_BATCH));
+                for (Produit produit : batch)
+                    add(newPostings, newDocuments, produit);
+                if (!batch.isEmpty())
+                    afterId = batch.get(batch.size() - 1).getId();
+            } while (batch.size() == REBUILD_BATCH);
+        } catch (RuntimeException ex) {
+            lock.writeLock().lock();
+            try {
+                pendant = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw ex;
+        }
+
+        lock.writeLock().lock();
+        try {
+            for (Map.Entry<Long, Produit> entry : pendant.entrySet()) {
+                remove(newPostings, newDocuments, entry.getKey());
+                if (entry.getValue() != null)
+                    add(newPostings, newDocuments, entry.getValue());
+            }
+            pendant = null;
+            postings = newPostings;
+            documents = newDocuments;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void index(Produit produit) {
+        lock.writeLock().lock();
+        try {
+            remove(postings, documents, produit.getId());
+            add(postings, documents, produit);
+            if (pendant != null)
+                pendant.put(produit.getId(), produit);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void unindex(Long id) {
+        lock.writeLock().lock();
+        try {
+            remove(postings, documents, id);
+            if (pendant != null)
+                pendant.put(id, null);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return les ids des produits les plus pertinents, du meilleur au moins bon
+     */
+    public List<Long> search(String query, int limit) {
+        Set<String> terms = new LinkedHashSet<>(tokenize(query));
+        if (terms.isEmpty())
+            return Collections.emptyList();
+
+        Map<Long, Double> scores = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            int total = Math.max(documents.size(), 1);
+            for (String term : terms) {
+                Map<Long, Integer> posting = postings.get(term);
+                if (posting == null)
+                    continue;
+                double idf = Math.log(1.0 + (double) total / posting.size());
+                for (Map.Entry<Long, Integer> entry : posting.entrySet())
+                    scores.merge(entry.getKey(), entry.getValue() * idf, Double::sum);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        PriorityQueue<Hit> top = new PriorityQueue<>(limit + 1,
+                (a, b) -> a.score() != b.score() ? Double.compare(a.score(), b.score()) : Long.compare(b.id(), a.id()));
+        for (Map.Entry<Long, Double> entry : scores.entrySet()) {
+            top.add(new Hit(entry.getKey(), entry.getValue()));
+            if (top.size() > limit)
+                top.poll();
+        }
+        List<Long> ids = new ArrayList<>(top.size());
+        while (!top.isEmpty())
+            ids.add(top.poll().id());
+        Collections.reverse(ids);
+        return ids;
+    }
+
+    public static String fold(String text) {
+        return DIACRITICS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("").toLowerCase();
+    }
+
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null)
+            return tokens;
+        for (String token : SEPARATORS.split(fold(text))) {
+            if (!token.isEmpty())
+                tokens.add(token);
+        }
+        return tokens;
+    }
+
+    private static void add(Map<String, Map<Long, Integer>> postings, Map<Long, Set<String>> documents, Produit produit) {
+        Map<String, Integer> weights = new HashMap<>();
+        for (String term : tokenize(produit.getNom()))
+            weights.merge(term, NOM_WEIGHT, Integer::sum);
+        for (String term : tokenize(produit.getAvis()))
+            weights.merge(term, AVIS_WEIGHT, Integer::sum);
+        for (Map.Entry<String, Integer> entry : weights.entrySet())
+            postings.computeIfAbsent(entry.getKey(), k -> new HashMap<>()).put(produit.getId(), entry.getValue());
+        documents.put(produit.getId(), weights.keySet());
+    }
+
+    private static void remove(Map<String, Map<Long, Integer>> postings, Map<Long, Set<String>> documents, Long id) {
+        Set<String> terms = documents.remove(id);
+        if (terms == null)
+            return;
+        for (String term : terms) {
+            Map<Long, Integer> posting = postings.get(term);
+            if (posting != null) {
+                posting.remove(id);
+                if (posting.isEmpty())
+                    postings.remove(term);
+            }
+        }
+    }
+}
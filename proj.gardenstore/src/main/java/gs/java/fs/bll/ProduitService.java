@@ -1,6 +1,11 @@
 package gs.java.fs.bll;
 
+import gs.java.fs.api.models.dtos.ProduitDTO;
+import gs.java.fs.api.models.form.ProduitPatchForm;
+import gs.java.fs.domain.entities.Description;
 import gs.java.fs.domain.entities.Produit;
+import gs.java.fs.utils.BoundedCache;
+import gs.java.fs.utils.KeysetCursor;
 
 import java.util.List;
 
@@ -8,8 +13,18 @@ public interface ProduitService {
     Produit getOne(Long id);
     Produit getOneId(Long id);
     List<Produit> getAll();
+    List<ProduitDTO> getAllDTO();
+    List<Produit> getPage(ProduitSort sort, KeysetCursor after, int limit);
+    List<Produit> getByCategorie(Description categorie);
+    List<Produit> getPageByCategorie(Description categorie, KeysetCursor after, int limit);
+    List<CategorieAggregate.Stats> categorieStats();
+    List<Produit> search(String query, int limit);
     Produit add(Produit produit);
     Produit update(Long id, Produit produit);
+    Produit patch(Long id, ProduitPatchForm patch);
     Produit delete(Long id);
+    BoundedCache.Stats cacheStats();
+    String etag(Long id);
+    String collectionEtag();
 
 }
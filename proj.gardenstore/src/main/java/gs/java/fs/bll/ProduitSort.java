@@ -0,0 +1,42 @@
+package gs.java.fs.bll;
+
+import gs.java.fs.domain.entities.Produit;
+import gs.java.fs.exceptions.InvalidPageRequestException;
+
+import java.util.function.Function;
+
+public enum ProduitSort {
+
+    ID("id", produit -> null, key -> key),
+
+    PRIX_DE_VENTE("prixDeVente", Produit::getPrixDeVente, Integer::valueOf),
+
+    NOM("nom", Produit::getNom, key -> key);
+
+    private final String param;
+    private final Function<Produit, Object> key;
+    private final Function<String, ?> keyParser;
+
+    ProduitSort(String param, Function<Produit, Object> key, Function<String, ?> keyParser) {
+        this.param = param;
+        this.key = key;
+        this.keyParser = keyParser;
+    }
+
+    public Object keyOf(Produit produit) {
+        return key.apply(produit);
+    }
+
+    // conversion de la clé lue dans un curseur, utilisée pour le valider au décodage
+    public Function<String, ?> keyParser() {
+        return keyParser;
+    }
+
+    public static ProduitSort fromParam(String param) {
+        for (ProduitSort sort : values()) {
+            if (sort.param.equals(param))
+                return sort;
+        }
+        throw new InvalidPageRequestException("tri non supporté : " + param);
+    }
+}
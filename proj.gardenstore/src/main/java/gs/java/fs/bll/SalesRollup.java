@@ -0,0 +1,160 @@
+package gs.java.fs.bll;
+
+import gs.java.fs.dal.CommandeRepository;
+import gs.java.fs.domain.entities.Commande;
+import gs.java.fs.utils.AfterCommit;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Cumuls des ventes (montant, nombre de commandes, quantités) par jour, par mois et par livreur,
+ * tenus à jour par CommandeServiceImpl : le tableau de bord ne relit jamais la table commande.
+ * Les mises à jour ne sont appliquées qu'après le commit, et sous le même verrou que la reconstruction :
+ * une écriture concurrente d'un rebuild attend la fin de celui-ci et s'applique aux nouveaux cumuls.
+ */
+@Component
+public class SalesRollup {
+
+    public record Totals(long commandes, long montant, long quantite) { }
+
+    public record Stats(Map<LocalDate, Totals> parJour, Map<YearMonth, Totals> parMois, Map<Long, Totals> parLivreur) { }
+
+    /**
+     * Ce qu'une commande apporte aux cumuls
+     */
+    public record Line(LocalDate date, long commandes, long montant, long quantite, Long livreurId) {
+        public static Line of(Commande commande) {
+            return new Line(
+                    commande.getDateCommande(),
+                    1,
+                    commande.getMontant() == null ? 0 : commande.getMontant(),
+                    commande.getQuantite() == null ? 0 : commande.getQuantite(),
+                    commande.getDeliveredBy() == null ? null : commande.getDeliveredBy().getId()
+            );
+        }
+    }
+
+    private static final class Bucket {
+        long commandes;
+        long montant;
+        long quantite;
+
+        void add(Line line, int sign) {
+            commandes += sign * line.commandes();
+            montant += sign * line.montant();
+            quantite += sign * line.quantite();
+        }
+
+        Totals totals() {
+            return new Totals(commandes, montant, quantite);
+        }
+    }
+
+    private final CommandeRepository commandeRepository;
+    private final CommandeArchive commandeArchive;
+    private NavigableMap<LocalDate, Bucket> parJour = new TreeMap<>();
+    private NavigableMap<YearMonth, Bucket> parMois = new TreeMap<>();
+    private Map<Long, Bucket> parLivreur = new HashMap<>();
+    // livreur -> jour : sert aux totaux par livreur sur une période
+    private Map<Long, NavigableMap<LocalDate, Bucket>> parLivreurEtJour = new HashMap<>();
+
+    public SalesRollup(CommandeRepository commandeRepository, CommandeArchive commandeArchive) {
+        this.commandeRepository = commandeRepository;
+        this.commandeArchive = commandeArchive;
+    }
+
+    // le verrou est tenu pendant la lecture : une mise à jour concurrente ne peut pas viser les cumuls remplacés
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() {
+        List<Object[]> rows = commandeRepository.aggregateByDateAndLivreur();
+        // les mois archivés ne sont plus dans la table mais restent dans les cumuls
+        List<Line> archived = commandeArchive.totals();
+        parJour = new TreeMap<>();
+        parMois = new TreeMap<>();
+        parLivreur = new HashMap<>();
+        parLivreurEtJour = new HashMap<>();
+        for (Object[] row : rows)
+            apply(new Line((LocalDate) row[0], (Long) row[2], (Long) row[3], (Long) row[4], (Long) row[1]), 1);
+        for (Line line : archived)
+            apply(line, 1);
+    }
+
+    /**
+     * Applique le changement d'une commande après le commit de la transaction courante : un rollback ne touche pas aux cumuls.
+     */
+    public void onSaved(Line previous, Line saved) {
+        AfterCommit.run(() -> applyChange(previous, saved));
+    }
+
+    private synchronized void applyChange(Line previous, Line saved) {
+        if (previous != null)
+            apply(previous, -1);
+        if (saved != null)
+            apply(saved, 1);
+    }
+
+    public synchronized Stats stats(LocalDate from, LocalDate to) {
+        NavigableMap<LocalDate, Bucket> jours = parJour;
+        if (from != null)
+            jours = jours.tailMap(from, true);
+        if (to != null)
+            jours = jours.headMap(to, true);
+        NavigableMap<YearMonth, Bucket> mois = parMois;
+        if (from != null)
+            mois = mois.tailMap(YearMonth.from(from), true);
+        if (to != null)
+            mois = mois.headMap(YearMonth.from(to), true);
+        return new Stats(totals(jours), totals(mois), from == null && to == null ? totals(parLivreur) : livreurTotals(from, to));
+    }
+
+    private Map<Long, Totals> livreurTotals(LocalDate from, LocalDate to) {
+        Map<Long, Bucket> livreurs = new HashMap<>();
+        for (Map.Entry<Long, NavigableMap<LocalDate, Bucket>> entry : parLivreurEtJour.entrySet()) {
+            NavigableMap<LocalDate, Bucket> jours = entry.getValue();
+            if (from != null)
+                jours = jours.tailMap(from, true);
+            if (to != null)
+                jours = jours.headMap(to, true);
+            Bucket sum = new Bucket();
+            for (Bucket jour : jours.values()) {
+                sum.commandes += jour.commandes;
+                sum.montant += jour.montant;
+                sum.quantite += jour.quantite;
+            }
+            livreurs.put(entry.getKey(), sum);
+        }
+        return totals(livreurs);
+    }
+
+    private void apply(Line line, int sign) {
+        if (line.date() != null) {
+            parJour.computeIfAbsent(line.date(), k -> new Bucket()).add(line, sign);
+            parMois.computeIfAbsent(YearMonth.from(line.date()), k -> new Bucket()).add(line, sign);
+        }
+        if (line.livreurId() != null) {
+            parLivreur.computeIfAbsent(line.livreurId(), k -> new Bucket()).add(line, sign);
+            if (line.date() != null)
+                parLivreurEtJour.computeIfAbsent(line.livreurId(), k -> new TreeMap<>())
+                        .computeIfAbsent(line.date(), k -> new Bucket()).add(line, sign);
+        }
+    }
+
+    private static <K> Map<K, Totals> totals(Map<K, Bucket> buckets) {
+        Map<K, Totals> totals = new LinkedHashMap<>();
+        for (Map.Entry<K, Bucket> entry : buckets.entrySet()) {
+            if (entry.getValue().commandes != 0)
+                totals.put(entry.getKey(), entry.getValue().totals());
+        }
+        return totals;
+    }
+}
@@ -0,0 +1,15 @@
+package gs.java.fs.bll;
+
+import java.time.Instant;
+import java.util.UUID;
+
+public record StockReservation(
+        UUID id,
+        Long produitId,
+        int quantite,
+        Instant expiresAt
+) {
+    public boolean isExpired(Instant now) {
+        return now.isAfter(expiresAt);
+    }
+}
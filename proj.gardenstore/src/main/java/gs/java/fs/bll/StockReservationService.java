@@ -0,0 +1,21 @@
+package gs.java.fs.bll;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.UUID;
+
+public interface StockReservationService {
+
+    StockReservation reserve(Long produitId, int quantite, Duration ttl);
+    StockReservation confirm(UUID reservationId);
+    StockReservation release(UUID reservationId);
+    void resync(Long produitId);
+    /**
+     * Retire le stock de plusieurs produits en une seule instruction, tout ou rien.
+     * @return le prix de vente de chaque produit servi
+     */
+    Map<Long, Integer> take(SortedMap<Long, Integer> quantites);
+    void giveBack(SortedMap<Long, Integer> quantites);
+
+}
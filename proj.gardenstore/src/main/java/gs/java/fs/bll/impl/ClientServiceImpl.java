@@ -1,10 +1,24 @@
 package gs.java.fs.bll.impl;
 
+import gs.java.fs.api.models.dtos.ClientDTO;
+import gs.java.fs.api.models.form.ClientPatchForm;
 import gs.java.fs.dal.ClientRepository;
+import gs.java.fs.dal.SqlPatch;
+import gs.java.fs.bll.ClientEmailIndex;
 import gs.java.fs.bll.ClientService;
+import gs.java.fs.bll.CustomUserDetailsService;
+import gs.java.fs.domain.entities.Addresse;
 import gs.java.fs.domain.entities.Client;
-import jakarta.transaction.Transactional;
+import gs.java.fs.exceptions.ClientException;
+import gs.java.fs.utils.BoundedPasswordEncoder;
+import gs.java.fs.utils.KeysetCursor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.util.List;
 
@@ -14,10 +28,29 @@ import java.util.List;
 public class ClientServiceImpl implements ClientService {
 
 //    @Resource
+    // l'ancien mail est relu dans la même instruction pour invalider le cache d'authentification
+    private static final String PATCH_SQL = """
+            update client c set %s
+            from (select client_id, mail from client where client_id = :id for update) old
+            where c.client_id = old.client_id
+            returning c.client_id, c.nom, c.prenom, c.addresse_rue, c.addresse_ville, c."addresse_numéro", c.addresse_codepostal,
+                      c.mail, c."telephone", old.mail as old_mail
+            """;
+
     private final ClientRepository clientRepository;
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final CustomUserDetailsService userDetailsService;
+    private final BoundedPasswordEncoder passwordEncoder;
+    private final ClientEmailIndex emailIndex;
 
-    public ClientServiceImpl(ClientRepository clientRepository) {
+    public ClientServiceImpl(ClientRepository clientRepository, NamedParameterJdbcTemplate jdbcTemplate,
+                             CustomUserDetailsService userDetailsService, BoundedPasswordEncoder passwordEncoder,
+                             ClientEmailIndex emailIndex) {
         this.clientRepository = clientRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.userDetailsService = userDetailsService;
+        this.passwordEncoder = passwordEncoder;
+        this.emailIndex = emailIndex;
     }
 
     @Override
@@ -29,23 +62,132 @@ public class ClientServiceImpl implements ClientService {
     public List<Client> getAll() {
         return clientRepository.findAll();
     }
+    @Override
+    @Transactional(readOnly = true)
+    public List<ClientDTO> getAllDTO() {
+        return clientRepository.findAllDto();
+    }
+    @Override
+    @Transactional(readOnly = true)
+    public ClientDTO getOneDTO(Long id) {
+        return clientRepository.findDtoById(id).orElseThrow(() -> new RuntimeException("aucun client trouvé avec cet ID"));
+    }
+    @Override
+    public List<Client> getPage(KeysetCursor after, int limit) {
+        return clientRepository.findPageAfterId(after.id(), PageRequest.of(0, limit));
+    }
 
     @Override
     public Client create(Client toCreate) {
-        return clientRepository.save(toCreate);
+        // vérifié avant le hachage : un doublon ne coûte ni BCrypt ni INSERT
+        if (emailIndex.exists(toCreate.getMail()))
+            throw new ClientException("un client existe déjà avec cet email");
+        toCreate.setPassword(passwordEncoder.encode(toCreate.getPassword()));
+        Client saved;
+        try {
+            saved = clientRepository.saveAndFlush(toCreate);
+        } catch (DataIntegrityViolationException ex) {
+            // inscription concurrente du même email : l'index unique tranche
+            throw new ClientException("un client existe déjà avec cet email");
+        }
+        emailIndex.added(saved.getMail());
+        return saved;
     }
 
     @Override
     public Client update(Long id, Client toUpdate) {
+        String oldMail = clientRepository.findMailById(id).orElse(null);
+        evictCredentials(oldMail);
+        boolean mailChanged = oldMail != null && !oldMail.equals(toUpdate.getMail());
+        if (mailChanged && emailIndex.exists(toUpdate.getMail()))
+            throw new ClientException("un client existe déjà avec cet email");
+        // le formulaire transmet toujours le mot de passe en clair, même s'il ressemble à un hash :
+        // l'enregistrer tel quel permettrait de choisir directement le hash stocké
+        toUpdate.setPassword(passwordEncoder.encode(toUpdate.getPassword()));
         toUpdate.setId(id);
-        return clientRepository.save(toUpdate);
+        Client saved;
+        try {
+            saved = clientRepository.saveAndFlush(toUpdate);
+        } catch (DataIntegrityViolationException ex) {
+            throw new ClientException("un client existe déjà avec cet email");
+        }
+        evictCredentials(saved.getMail());
+        if (mailChanged) {
+            emailIndex.added(saved.getMail());
+            emailIndex.removed(oldMail);
+        }
+        return saved;
+    }
+
+    @Override
+    public ClientDTO patch(Long id, ClientPatchForm form) {
+        SqlPatch patch = new SqlPatch()
+                .set("nom", "nom", form.nom())
+                .set("prenom", "prenom", form.prenom())
+                .set("mail", "mail", form.mail())
+                .set("\"telephone\"", "telephone", form.telephone())
+                .set("addresse_rue", "addresseRue", form.addresseRue())
+                .set("addresse_ville", "addresseVille", form.addresseVille())
+                .set("\"addresse_numéro\"", "addresseNumero", form.addresseNumero())
+                .set("addresse_codepostal", "addresseCodepostal", form.addresseCodepostal())
+                .param("id", id);
+        if (patch.isEmpty())
+            return getOneDTO(id);
+
+        String[] oldMail = new String[1];
+        List<ClientDTO> rows;
+        try {
+            rows = jdbcTemplate.query(PATCH_SQL.formatted(patch.setClause()), patch.params(), (rs, i) -> {
+                Addresse addresse = new Addresse();
+                addresse.setAddresseRue(rs.getString("addresse_rue"));
+                addresse.setAddresseVille(rs.getString("addresse_ville"));
+                addresse.setAddresseNumero(rs.getObject("addresse_numéro", Integer.class));
+                addresse.setAddresseCodepostal(rs.getObject("addresse_codepostal", Integer.class));
+                oldMail[0] = rs.getString("old_mail");
+                return new ClientDTO(
+                        rs.getLong("client_id"),
+                        rs.getString("nom"),
+                        rs.getString("prenom"),
+                        addresse,
+                        rs.getString("mail"),
+                        rs.getObject("telephone", Integer.class)
+                );
+            });
+        } catch (DataIntegrityViolationException ex) {
+            // l'index unique sur le mail tranche : un doublon est un conflit, pas une erreur serveur
+            throw new ClientException("un client existe déjà avec cet email");
+        }
+        if (rows.isEmpty())
+            throw new RuntimeException("aucun client trouvé avec cet ID");
+        evictCredentials(oldMail[0]);
+        evictCredentials(rows.get(0).mail());
+        if (oldMail[0] != null && !oldMail[0].equals(rows.get(0).mail())) {
+            emailIndex.added(rows.get(0).mail());
+            emailIndex.removed(oldMail[0]);
+        }
+        return rows.get(0);
     }
 
     @Override
     public Client delete(Long id) {
         Client toDelete = getOne(id);
         clientRepository.delete(toDelete);
+        evictCredentials(toDelete.getMail());
+        emailIndex.removed(toDelete.getMail());
         return toDelete;
     }
 
+    // tout de suite, puis après commit : une connexion concurrente a pu recharger l'ancienne valeur entre-temps
+    private void evictCredentials(String mail) {
+        userDetailsService.evict(mail);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    userDetailsService.evict(mail);
+                }
+            });
+        }
+    }
+
 }
@@ -0,0 +1,205 @@
+package gs.java.fs.bll.impl;
+
+import gs.java.fs.api.models.dtos.CommandeDTO;
+import gs.java.fs.api.models.form.CommandeBulkForm;
+import gs.java.fs.bll.BulkProgress;
+import gs.java.fs.bll.CommandeBulkService;
+import gs.java.fs.bll.CommandeEventFeed;
+import gs.java.fs.bll.LivreurAssignment;
+import gs.java.fs.bll.SalesRollup;
+import gs.java.fs.bll.StockReservationService;
+import gs.java.fs.dal.LivreurRepository;
+import gs.java.fs.domain.entities.StatutCommande;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+/**
+ * Opérations de masse sur les commandes : les ids sont traités par lots, chaque lot en une transaction
+ * courte et quelques instructions ensemblistes. Aucune entité n'est chargée ; les lignes renvoyées
+ * par RETURNING suffisent à tenir à jour stock, cumuls de ventes et flux d'événements.
+ */
+@Service
+public class CommandeBulkServiceImpl implements CommandeBulkService {
+
+    private static final String RETURNING = """
+            returning c.commande_id, c.montant, c.date_commande, c."quantité", c.n_commande, c.statut, c.code_postal, c.delivered_by_livreur_id""";
+
+    private static final String IDS_BY_DATE_SQL = """
+            select commande_id from commande
+            where date_commande between :from and :to and commande_id > :after
+            order by commande_id limit :chunk
+            """;
+    private static final String COUNT_BY_DATE_SQL =
+            "select count(*) from commande where date_commande between :from and :to";
+    private static final String DELETE_LIGNES_SQL = """
+            delete from ligne_commande where commande_id in (:ids) returning produit_id, "quantité"
+            """;
+    private static final String DELETE_SQL = "delete from commande c where c.commande_id in (:ids) " + RETURNING;
+    private static final String REASSIGN_SQL = """
+            update commande c set delivered_by_livreur_id = :livreurId
+            from (select commande_id, delivered_by_livreur_id from commande where commande_id in (:ids) order by commande_id for update) old
+            where c.commande_id = old.commande_id
+            """ + RETURNING + ", old.delivered_by_livreur_id as old_livreur_id";
+    private static final String STATUT_SQL = """
+            update commande c set statut = :statut
+            from (select commande_id, statut from commande where commande_id in (:ids) order by commande_id for update) old
+            where c.commande_id = old.commande_id
+            """ + RETURNING + ", old.statut as old_statut";
+
+    private record Row(CommandeDTO commande, Integer codePostal, Long livreurId, Long oldLivreurId, StatutCommande oldStatut) {
+        boolean active() {
+            return commande.statut() != StatutCommande.LIVREE;
+        }
+
+        SalesRollup.Line line(Long livreur) {
+            return new SalesRollup.Line(commande.dateCommande(), 1,
+                    commande.montant() == null ? 0 : commande.montant(),
+                    commande.quantite() == null ? 0 : commande.quantite(),
+                    livreur);
+        }
+    }
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final LivreurRepository livreurRepository;
+    private final StockReservationService stockReservationService;
+    private final SalesRollup salesRollup;
+    private final CommandeEventFeed eventFeed;
+    private final LivreurAssignment livreurAssignment;
+    private final int chunkSize;
+
+    public CommandeBulkServiceImpl(NamedParameterJdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                                   LivreurRepository livreurRepository, StockReservationService stockReservationService,
+                                   SalesRollup salesRollup, CommandeEventFeed eventFeed,
+                                   LivreurAssignment livreurAssignment,
+                                   @Value("${gardenstore.bulk.chunk-size:1000}") int chunkSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.livreurRepository = livreurRepository;
+        this.stockReservationService = stockReservationService;
+        this.salesRollup = salesRollup;
+        this.eventFeed = eventFeed;
+        this.livreurAssignment = livreurAssignment;
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public void check(CommandeBulkForm form) {
+        if (form.operation() == CommandeBulkForm.Operation.REAFFECTER && !livreurRepository.existsById(Math.toIntExact(form.livreurId())))
+            throw new RuntimeException("aucun livreur trouvé avec cet ID");
+    }
+
+    @Override
+    public BulkProgress run(CommandeBulkForm form, Consumer<BulkProgress> progress) {
+        check(form);
+        boolean parIds = form.ids() != null && !form.ids().isEmpty();
+        List<Long> ids = parIds ? form.ids().stream().distinct().sorted().toList() : List.of();
+        MapSqlParameterSource dates = new MapSqlParameterSource()
+                .addValue("from", form.from())
+                .addValue("to", form.to())
+                .addValue("chunk", chunkSize);
+        long total = parIds ? ids.size() : jdbcTemplate.queryForObject(COUNT_BY_DATE_SQL, dates, Long.class);
+
+        long traitees = 0;
+        long after = 0;
+        int offset = 0;
+        while (true) {
+            List<Long> lot;
+            if (parIds) {
+                lot = ids.subList(offset, Math.min(offset + chunkSize, ids.size()));
+                offset += lot.size();
+            } else {
+                lot = jdbcTemplate.queryForList(IDS_BY_DATE_SQL, dates.addValue("after", after), Long.class);
+                if (!lot.isEmpty())
+                    after = lot.get(lot.size() - 1);
+            }
+            if (lot.isEmpty())
+                break;
+            Integer done = transactionTemplate.execute(status -> apply(form, lot));
+            traitees += done == null ? 0 : done;
+            progress.accept(new BulkProgress(form.operation(), traitees, total, false));
+        }
+        BulkProgress fin = new BulkProgress(form.operation(), traitees, total, true);
+        progress.accept(fin);
+        return fin;
+    }
+
+    private int apply(CommandeBulkForm form, List<Long> ids) {
+        MapSqlParameterSource params = new MapSqlParameterSource("ids", ids);
+        return switch (form.operation()) {
+            case ANNULER -> cancel(params);
+            case REAFFECTER -> reassign(params.addValue("livreurId", form.livreurId()));
+            case CHANGER_STATUT -> changeStatut(params.addValue("statut", form.statut().name()));
+        };
+    }
+
+    private int cancel(MapSqlParameterSource params) {
+        SortedMap<Long, Integer> quantites = new TreeMap<>();
+        jdbcTemplate.query(DELETE_LIGNES_SQL, params, rs -> {
+            quantites.merge(rs.getLong("produit_id"), rs.getInt("quantité"), Integer::sum);
+        });
+        stockReservationService.giveBack(quantites);
+        List<Row> rows = jdbcTemplate.query(DELETE_SQL, params, (rs, i) -> row(rs, null));
+        for (Row row : rows) {
+            if (row.active())
+                livreurAssignment.adjustAfterCommit(row.livreurId(), row.codePostal(), -1);
+            salesRollup.onSaved(row.line(row.livreurId()), null);
+            eventFeed.publishAfterCommit(CommandeEventFeed.Type.ANNULEE, row.commande());
+        }
+        return rows.size();
+    }
+
+    private int reassign(MapSqlParameterSource params) {
+        List<Row> rows = jdbcTemplate.query(REASSIGN_SQL, params, (rs, i) -> row(rs, "old_livreur_id"));
+        for (Row row : rows) {
+            if (row.active()) {
+                livreurAssignment.adjustAfterCommit(row.oldLivreurId(), row.codePostal(), -1);
+                livreurAssignment.adjustAfterCommit(row.livreurId(), row.codePostal(), 1);
+            }
+            salesRollup.onSaved(row.line(row.oldLivreurId()), row.line(row.livreurId()));
+            eventFeed.publishAfterCommit(CommandeEventFeed.Type.MODIFIEE, row.commande());
+        }
+        return rows.size();
+    }
+
+    private int changeStatut(MapSqlParameterSource params) {
+        List<Row> rows = jdbcTemplate.query(STATUT_SQL, params, (rs, i) -> row(rs, "old_statut"));
+        for (Row row : rows) {
+            // une commande livrée ne compte plus dans la charge de son livreur
+            boolean wasActive = row.oldStatut() != StatutCommande.LIVREE;
+            if (wasActive != row.active())
+                livreurAssignment.adjustAfterCommit(row.livreurId(), row.codePostal(), row.active() ? 1 : -1);
+            eventFeed.publishAfterCommit(CommandeEventFeed.Type.MODIFIEE, row.commande());
+        }
+        return rows.size();
+    }
+
+    private static Row row(ResultSet rs, String oldColumn) throws SQLException {
+        Date date = rs.getDate("date_commande");
+        CommandeDTO commande = new CommandeDTO(
+                rs.getLong("commande_id"),
+                rs.getObject("montant", Integer.class),
+                date == null ? null : date.toLocalDate(),
+                rs.getObject("quantité", Integer.class),
+                rs.getObject("n_commande", Integer.class),
+                StatutCommande.valueOf(rs.getString("statut"))
+        );
+        return new Row(commande,
+                rs.getObject("code_postal", Integer.class),
+                rs.getObject("delivered_by_livreur_id", Long.class),
+                "old_livreur_id".equals(oldColumn) ? rs.getObject(oldColumn, Long.class) : null,
+                "old_statut".equals(oldColumn) ? StatutCommande.valueOf(rs.getString(oldColumn)) : null);
+    }
+}
@@ -1,46 +1,314 @@
 package gs.java.fs.bll.impl;
 
+import gs.java.fs.api.models.dtos.CommandeDTO;
+import gs.java.fs.api.models.dtos.LigneCommandeDTO;
+import gs.java.fs.api.models.form.CommandePatchForm;
+import gs.java.fs.bll.CommandeArchive;
+import gs.java.fs.bll.CommandeEventFeed;
 import gs.java.fs.bll.CommandeService;
+import gs.java.fs.bll.LivreurAssignment;
+import gs.java.fs.bll.SalesRollup;
+import gs.java.fs.bll.StockReservationService;
 import gs.java.fs.dal.CommandeRepository;
+import gs.java.fs.dal.LivreurRepository;
+import gs.java.fs.dal.ProduitRepository;
+import gs.java.fs.dal.SqlPatch;
 import gs.java.fs.domain.entities.Commande;
-import jakarta.transaction.Transactional;
+import gs.java.fs.domain.entities.LigneCommande;
+import gs.java.fs.domain.entities.StatutCommande;
+import gs.java.fs.exceptions.CommandeInvalideException;
+import gs.java.fs.utils.KeysetCursor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.Date;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
 
 @Service
 @Transactional
 public class CommandeServiceImpl implements CommandeService {
+    // l'état précédent est relu dans la même instruction pour corriger les cumuls de ventes
+    private static final String PATCH_SQL = """
+            update commande c set %s
+            from (select commande_id, montant, date_commande, "quantité" from commande where commande_id = :id for update) old
+            where c.commande_id = old.commande_id
+            returning c.commande_id, c.montant, c.date_commande, c."quantité", c.n_commande, c.statut, c.delivered_by_livreur_id,
+                      old.montant as old_montant, old.date_commande as old_date_commande, old."quantité" as old_quantite
+            """;
+
+    private static final String TOTAUX_SQL = """
+            select count(*) as lignes, coalesce(sum(prix_unitaire * "quantité"), 0) as montant,
+                   coalesce(sum("quantité"), 0) as quantite
+            from ligne_commande where commande_id = :id
+            """;
+
+    private record Patched(CommandeDTO saved, SalesRollup.Line line, SalesRollup.Line previous) { }
+
+    // montant et quantité calculés à partir des lignes d'une commande
+    private record Totaux(long lignes, int montant, int quantite) { }
+
     private final CommandeRepository commandeRepository;
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final SalesRollup salesRollup;
+    private final ProduitRepository produitRepository;
+    private final StockReservationService stockReservationService;
+    private final CommandeEventFeed eventFeed;
+    private final CommandeArchive commandeArchive;
+    private final LivreurAssignment livreurAssignment;
+    private final LivreurRepository livreurRepository;
 
-    public CommandeServiceImpl(CommandeRepository commandeRepository) {
+    public CommandeServiceImpl(CommandeRepository commandeRepository, NamedParameterJdbcTemplate jdbcTemplate,
+                               SalesRollup salesRollup, ProduitRepository produitRepository,
+                               StockReservationService stockReservationService, CommandeEventFeed eventFeed,
+                               CommandeArchive commandeArchive, LivreurAssignment livreurAssignment,
+                               LivreurRepository livreurRepository) {
         this.commandeRepository = commandeRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.salesRollup = salesRollup;
+        this.produitRepository = produitRepository;
+        this.stockReservationService = stockReservationService;
+        this.eventFeed = eventFeed;
+        this.commandeArchive = commandeArchive;
+        this.livreurAssignment = livreurAssignment;
+        this.livreurRepository = livreurRepository;
     }
     @Override
     public Commande register(Commande commande) {
-        // return commandeRepository.findById(commande.getId()).orElseThrow(() -> new RuntimeException("aucun client trouvé avec cet ID"));
-        return commandeRepository.save(commande);
+        asNew(commande);
+        takeStock(List.of(commande));
+        assignLivreur(commande);
+        Commande saved = commandeRepository.save(commande);
+        salesRollup.onSaved(null, SalesRollup.Line.of(saved));
+        eventFeed.publishAfterCommit(CommandeEventFeed.Type.CREEE, CommandeDTO.fromEntity(saved));
+        return saved;
+    }
+    @Override
+    public List<Commande> registerAll(List<Commande> commandes) {
+        commandes.forEach(CommandeServiceImpl::asNew);
+        // tout le lot ne coûte qu'une instruction de déstockage
+        takeStock(commandes);
+        commandes.forEach(this::assignLivreur);
+        List<Commande> saved = commandeRepository.saveAll(commandes);
+        commandeRepository.flush();
+        for (Commande commande : saved) {
+            salesRollup.onSaved(null, SalesRollup.Line.of(commande));
+            eventFeed.publishAfterCommit(CommandeEventFeed.Type.CREEE, CommandeDTO.fromEntity(commande));
+        }
+        return saved;
     }
        
     @Override
     public List<Commande> getAll() {
         return commandeRepository.findAll();
     }
+    @Override
+    @Transactional(readOnly = true)
+    public List<CommandeDTO> getAllDTO() {
+        return commandeRepository.findAllDto();
+    }
+    @Override
+    @Transactional(readOnly = true)
+    public CommandeDTO getOneDTO(Long id) {
+        return commandeRepository.findDtoById(id)
+                .or(() -> commandeArchive.find(id).map(CommandeArchive.Row::commande))
+                .orElseThrow(() -> new RuntimeException("aucune commnde trouvée avec cet ID"));
+    }
+    @Override
+    public List<Commande> getPage(KeysetCursor after, int limit) {
+        return commandeRepository.findPageAfterId(after.id(), PageRequest.of(0, limit));
+    }
+    @Override
+    @Transactional(readOnly = true)
+    public List<CommandeDTO> getByDateRange(LocalDate from, LocalDate to, Long livreurId, KeysetCursor after, int limit) {
+        // sans curseur, on part de (from, 0) : toutes les commandes du premier jour sont incluses
+        LocalDate afterDate = after.key() == null ? from : LocalDate.parse(after.key());
+        long afterId = after.id();
+        if (afterDate.isBefore(from)) {
+            afterDate = from;
+            afterId = 0;
+        }
+        PageRequest page = PageRequest.of(0, limit);
+        return livreurId == null
+                ? commandeRepository.findPageByDateRange(to, afterDate, afterId, page)
+                : commandeRepository.findPageByLivreurAndDateRange(livreurId, to, afterDate, afterId, page);
+    }
 
     @Override
     public Commande getOne(Long id) {
-        return commandeRepository.findById(id).orElseThrow(()->new RuntimeException("aucune commnde trouvée avec cet ID"));
+        // une commande archivée est rendue détachée, reconstruite depuis l'archive
+        return commandeRepository.findById(id)
+                .or(() -> commandeArchive.find(id).map(CommandeArchive.Row::toEntity))
+                .orElseThrow(()->new RuntimeException("aucune commnde trouvée avec cet ID"));
+    }
+    @Override
+    @Transactional(readOnly = true)
+    public List<LigneCommandeDTO> getLignes(Long id) {
+        if (!commandeRepository.existsById(id))
+            return commandeArchive.find(id)
+                    .map(CommandeArchive.Row::lignes)
+                    .orElseThrow(() -> new RuntimeException("aucune commnde trouvée avec cet ID"));
+        return commandeRepository.findLignesByCommandeId(id);
     }
     @Override
     public boolean cancel(Long id) {
-        Commande commande = getOne(id);
+        Commande commande = commandeRepository.findById(id).orElse(null);
+        if (commande == null)
+            return false;
+        SalesRollup.Line previous = SalesRollup.Line.of(commande);
+        stockReservationService.giveBack(quantites(List.of(commande)));
+        CommandeDTO dto = CommandeDTO.fromEntity(commande);
+        if (commande.getDeliveredBy() != null && commande.getStatut() != StatutCommande.LIVREE)
+            livreurAssignment.adjustAfterCommit(commande.getDeliveredBy().getId(), commande.getCodePostal(), -1);
         commandeRepository.delete(commande);
-        return false;
+        salesRollup.onSaved(previous, null);
+        eventFeed.publishAfterCommit(CommandeEventFeed.Type.ANNULEE, dto);
+        return true;
     }
     @Override
     public Commande update(Long id, Commande commande) {
+        Commande current = commandeRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("aucune commnde modifiable avec cet ID (archivée ou inexistante)"));
+        SalesRollup.Line previous = SalesRollup.Line.of(current);
+        if (!current.getLignes().isEmpty()) {
+            Totaux totaux = totaux(current.getLignes());
+            checkDerived(totaux, commande.getMontant(), commande.getQuantite());
+            commande.setMontant(totaux.montant());
+            commande.setQuantite(totaux.quantite());
+        }
         commande.setId(id);
-        return commandeRepository.save(commande);
+        Commande saved = commandeRepository.save(commande);
+        salesRollup.onSaved(previous, SalesRollup.Line.of(saved));
+        eventFeed.publishAfterCommit(CommandeEventFeed.Type.MODIFIEE, CommandeDTO.fromEntity(saved));
+        return saved;
+    }
+    /**
+     * Déstocke les lignes de toutes les commandes en une instruction, puis calcule montant et quantité
+     * avec les prix de vente relus par cette même instruction.
+     */
+    private void takeStock(List<Commande> commandes) {
+        for (Commande commande : commandes) {
+            if (commande.getLignes().isEmpty() && (commande.getMontant() == null || commande.getQuantite() == null))
+                throw new CommandeInvalideException("une commande sans lignes doit préciser montant et quantité");
+        }
+        SortedMap<Long, Integer> quantites = quantites(commandes);
+        if (quantites.isEmpty())
+            return;
+        Map<Long, Integer> prix = stockReservationService.take(quantites);
+        for (Commande commande : commandes) {
+            if (commande.getLignes().isEmpty())
+                continue;
+            int montant = 0;
+            int quantite = 0;
+            for (LigneCommande ligne : commande.getLignes()) {
+                Long produitId = ligne.getProduit().getId();
+                ligne.setCommande(commande);
+                ligne.setProduit(produitRepository.getReferenceById(produitId));
+                ligne.setPrixUnitaire(prix.get(produitId));
+                montant += ligne.getPrixUnitaire() * ligne.getQuantite();
+                quantite += ligne.getQuantite();
+            }
+            commande.setMontant(montant);
+            commande.setQuantite(quantite);
+        }
+    }
+
+    private void assignLivreur(Commande commande) {
+        if (commande.getDeliveredBy() != null)
+            return;
+        Long livreurId = livreurAssignment.assign(commande.getCodePostal());
+        if (livreurId != null)
+            commande.setDeliveredBy(livreurRepository.getReferenceById(Math.toIntExact(livreurId)));
+    }
+
+    private static Totaux totaux(List<LigneCommande> lignes) {
+        int montant = 0;
+        int quantite = 0;
+        for (LigneCommande ligne : lignes) {
+            montant += ligne.getPrixUnitaire() * ligne.getQuantite();
+            quantite += ligne.getQuantite();
+        }
+        return new Totaux(lignes.size(), montant, quantite);
+    }
+
+    // une commande avec lignes n'accepte pas d'autre montant ni d'autre quantité que ceux de ses lignes
+    private static void checkDerived(Totaux totaux, Integer montant, Integer quantite) {
+        if ((montant != null && montant != totaux.montant()) || (quantite != null && quantite != totaux.quantite()))
+            throw new CommandeInvalideException("montant et quantité d'une commande avec lignes sont calculés à partir des lignes");
+    }
+
+    // une création ne doit jamais fusionner avec une commande existante portant l'id reçu,
+    // ni réutiliser les ids attribués lors d'une tentative annulée
+    private static void asNew(Commande commande) {
+        commande.setId(null);
+        commande.getLignes().forEach(ligne -> ligne.setId(null));
+    }
+
+    // quantités cumulées par produit, triées par id : c'est l'ordre de verrouillage
+    private static SortedMap<Long, Integer> quantites(List<Commande> commandes) {
+        SortedMap<Long, Integer> quantites = new TreeMap<>();
+        for (Commande commande : commandes) {
+            for (LigneCommande ligne : commande.getLignes())
+                quantites.merge(ligne.getProduit().getId(), ligne.getQuantite(), Integer::sum);
+        }
+        return quantites;
+    }
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public SalesRollup.Stats stats(LocalDate from, LocalDate to) {
+        return salesRollup.stats(from, to);
+    }
+    @Override
+    public void rebuildStats() {
+        salesRollup.rebuild();
+    }
+    @Override
+    public CommandeDTO patch(Long id, CommandePatchForm form) {
+        if (form.montant() != null || form.quantite() != null) {
+            Totaux totaux = jdbcTemplate.queryForObject(TOTAUX_SQL, Map.of("id", id),
+                    (rs, i) -> new Totaux(rs.getLong("lignes"), rs.getInt("montant"), rs.getInt("quantite")));
+            if (totaux.lignes() > 0)
+                checkDerived(totaux, form.montant(), form.quantite());
+        }
+        SqlPatch patch = new SqlPatch()
+                .set("montant", "montant", form.montant())
+                .set("date_commande", "dateCommande", form.dateCommande())
+                .set("\"quantité\"", "quantite", form.quantite())
+                .set("n_commande", "nCommande", form.nCommande())
+                .param("id", id);
+        if (patch.isEmpty())
+            return getOneDTO(id);
+
+        List<Patched> rows = jdbcTemplate.query(PATCH_SQL.formatted(patch.setClause()), patch.params(), (rs, i) -> {
+            Date date = rs.getDate("date_commande");
+            Date oldDate = rs.getDate("old_date_commande");
+            Long livreurId = rs.getObject("delivered_by_livreur_id", Long.class);
+            CommandeDTO saved = new CommandeDTO(
+                    rs.getLong("commande_id"),
+                    rs.getObject("montant", Integer.class),
+                    date == null ? null : date.toLocalDate(),
+                    rs.getObject("quantité", Integer.class),
+                    rs.getObject("n_commande", Integer.class),
+                    StatutCommande.valueOf(rs.getString("statut"))
+            );
+            return new Patched(
+                    saved,
+                    new SalesRollup.Line(saved.dateCommande(), 1, rs.getLong("montant"), rs.getLong("quantité"), livreurId),
+                    new SalesRollup.Line(oldDate == null ? null : oldDate.toLocalDate(), 1,
+                            rs.getLong("old_montant"), rs.getLong("old_quantite"), livreurId)
+            );
+        });
+        if (rows.isEmpty())
+            throw new RuntimeException("aucune commnde trouvée avec cet ID");
+        salesRollup.onSaved(rows.get(0).previous(), rows.get(0).line());
+        eventFeed.publishAfterCommit(CommandeEventFeed.Type.MODIFIEE, rows.get(0).saved());
+        return rows.get(0).saved();
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,107 @@
+package gs.java.fs.bll.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import gs.java.fs.api.models.dtos.CommandeDTO;
+import gs.java.fs.api.models.dtos.ProduitDTO;
+import gs.java.fs.bll.ExportService;
+import gs.java.fs.domain.entities.Description;
+import gs.java.fs.domain.entities.StatutCommande;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.Date;
+
+/**
+ * Export NDJSON lu directement depuis un curseur JDBC : PostgreSQL ne renvoie les lignes par paquets
+ * de fetchSize que dans une transaction, d'où la transaction en lecture seule autour de la requête.
+ */
+@Service
+public class ExportServiceImpl implements ExportService {
+
+    private static final int FLUSH_EVERY = 1000;
+
+    private static final String PRODUITS_SQL =
+            "select id, nom, \"référence\", prix_de_vente, stock, avis, \"catégorie\" from produit order by id";
+    private static final String COMMANDES_SQL =
+            "select commande_id, montant, date_commande, \"quantité\", n_commande, statut from commande order by commande_id";
+
+    private static final RowMapper<ProduitDTO> PRODUIT_MAPPER = (rs, i) -> new ProduitDTO(
+            rs.getLong("id"),
+            rs.getString("nom"),
+            rs.getObject("référence", Integer.class),
+            rs.getObject("prix_de_vente", Integer.class),
+            rs.getObject("stock", Integer.class),
+            rs.getString("avis"),
+            rs.getString("catégorie") == null ? null : Description.valueOf(rs.getString("catégorie"))
+    );
+
+    private static final RowMapper<CommandeDTO> COMMANDE_MAPPER = (rs, i) -> {
+        Date date = rs.getDate("date_commande");
+        return new CommandeDTO(
+                rs.getLong("commande_id"),
+                rs.getObject("montant", Integer.class),
+                date == null ? null : date.toLocalDate(),
+                rs.getObject("quantité", Integer.class),
+                rs.getObject("n_commande", Integer.class),
+                rs.getString("statut") == null ? null : StatutCommande.valueOf(rs.getString("statut"))
+        );
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+
+    public ExportServiceImpl(DataSource dataSource, PlatformTransactionManager transactionManager,
+                             ObjectMapper objectMapper,
+                             @Value("${gardenstore.export.fetch-size:2000}") int fetchSize) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(fetchSize);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public void exportProduits(OutputStream out) throws IOException {
+        stream(PRODUITS_SQL, PRODUIT_MAPPER, out);
+    }
+
+    @Override
+    public void exportCommandes(OutputStream out) throws IOException {
+        stream(COMMANDES_SQL, COMMANDE_MAPPER, out);
+    }
+
+    private <T> void stream(String sql, RowMapper<T> mapper, OutputStream out) throws IOException {
+        try (SequenceWriter writer = objectMapper.writer()
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                .withRootValueSeparator("\n")
+                .writeValues(out)) {
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.query(sql, rs -> {
+                try {
+                    writer.write(mapper.mapRow(rs, rs.getRow()));
+                    // premier octet envoyé au plus tôt, puis vidage régulier pour ne rien accumuler
+                    if (rs.getRow() % FLUSH_EVERY == 1)
+                        writer.flush();
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            }));
+            // le générateur garde encore la fin du dernier enregistrement : il faut le vider avant d'écrire
+            // directement dans le flux, sinon le saut de ligne final atterrit au milieu d'un enregistrement
+            writer.flush();
+            out.write('\n');
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+    }
+}
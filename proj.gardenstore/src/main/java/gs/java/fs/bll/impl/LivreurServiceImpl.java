@@ -1,10 +1,19 @@
 package gs.java.fs.bll.impl;
 
+import gs.java.fs.api.models.dtos.LivreurDTO;
 import gs.java.fs.dal.LivreurRepository;
+import gs.java.fs.bll.LivreurAssignment;
 import gs.java.fs.bll.LivreurService;
+import gs.java.fs.domain.entities.Commande;
 import gs.java.fs.domain.entities.Livreur;
-import jakarta.transaction.Transactional;
+import gs.java.fs.utils.AfterCommit;
+import gs.java.fs.utils.KeysetCursor;
+import gs.java.fs.utils.VersionTracker;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 @Service
@@ -12,9 +21,15 @@ import java.util.List;
 public class LivreurServiceImpl implements LivreurService {
 
     private final LivreurRepository livreurRepository;
+    private final VersionTracker livreurVersions;
+    private final LivreurAssignment livreurAssignment;
 
-    public LivreurServiceImpl(LivreurRepository livreurRepository) {
+    public LivreurServiceImpl(LivreurRepository livreurRepository,
+                              @Qualifier("livreurVersions") VersionTracker livreurVersions,
+                              LivreurAssignment livreurAssignment) {
         this.livreurRepository = livreurRepository;
+        this.livreurVersions = livreurVersions;
+        this.livreurAssignment = livreurAssignment;
     }
     @Override
     public Livreur getOne(Long id) {
@@ -25,18 +40,82 @@ public class LivreurServiceImpl implements LivreurService {
         return livreurRepository.findAll();
     }
     @Override
+    @Transactional(readOnly = true)
+    public List<LivreurDTO> getAllDTO() {
+        return livreurRepository.findAllDto();
+    }
+    @Override
+    @Transactional(readOnly = true)
+    public LivreurDTO getOneDTO(Long id) {
+        return livreurRepository.findDtoById(id).orElseThrow(() -> new RuntimeException("aucun livreur trouvé avec cet ID"));
+    }
+    @Override
+    @Transactional(readOnly = true)
+    public List<Commande> getCommandes(Long id) {
+        // une seule requête : le graphe "Livreur.commandes" charge la collection par jointure
+        return livreurRepository.findWithCommandesById(id)
+                .orElseThrow(() -> new RuntimeException("aucun livreur trouvé avec cet ID"))
+                .getCommandes();
+    }
+    // servi depuis la table des versions : pas de transaction (ni de connexion) ouverte quand la version est connue
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public String etag(Long id) {
+        String etag = livreurVersions.etag(id);
+        if (etag == null) {
+            Long version = livreurRepository.findVersionById(id).orElseThrow(() -> new RuntimeException("aucun livreur trouvé avec cet ID"));
+            livreurVersions.record(id, version);
+            etag = VersionTracker.etag(id, version);
+        }
+        return etag;
+    }
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public String collectionEtag() {
+        return livreurVersions.collectionEtag();
+    }
+    @Override
+    public List<Livreur> getPage(KeysetCursor after, int limit) {
+        return livreurRepository.findPageAfterId(after.id(), PageRequest.of(0, limit));
+    }
+    @Override
     public Livreur update(Long id, Livreur livreur) {
-        livreur.setId(id);
-        return livreurRepository.save(livreur);
+        // mise à jour de l'entité gérée : un formulaire sans version serait sinon fusionné comme une nouvelle ligne
+        Livreur toUpdate = getOne(id);
+        toUpdate.setNom(livreur.getNom());
+        toUpdate.setPrénom(livreur.getPrénom());
+        toUpdate.setEmail(livreur.getEmail());
+        toUpdate.setNomContact(livreur.getNomContact());
+        toUpdate.setSociete(livreur.getSociete());
+        Livreur saved = livreurRepository.saveAndFlush(toUpdate);
+        Long version = saved.getVersion();
+        AfterCommit.run(() -> livreurVersions.changed(id, version));
+        return saved;
     }
     @Override
     public Livreur delete(Long id) {
         Livreur livreur = getOne(id);
         livreurRepository.delete(livreur);
+        // une suppression annulée ne doit ni masquer le livreur (304 sur une ressource « supprimée ») ni le retirer de l'affectation
+        AfterCommit.run(() -> {
+            livreurVersions.removed(id);
+            livreurAssignment.removeLivreur(id);
+        });
         return livreur;
     }
     @Override
     public Livreur add(Livreur livreur) {
-        return livreurRepository.save(livreur);
+        Livreur saved = livreurRepository.saveAndFlush(livreur);
+        Long id = saved.getId();
+        Long version = saved.getVersion();
+        AfterCommit.run(() -> {
+            livreurVersions.changed(id, version);
+            livreurAssignment.addLivreur(id);
+        });
+        return saved;
+    }
+    @Override
+    public List<LivreurAssignment.Charge> charges() {
+        return livreurAssignment.charges();
     }
 }
@@ -0,0 +1,211 @@
+package gs.java.fs.bll.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import gs.java.fs.api.models.form.ProduitForm;
+import gs.java.fs.bll.CategorieAggregate;
+import gs.java.fs.bll.ImportReport;
+import gs.java.fs.bll.ProduitImportService;
+import gs.java.fs.bll.ProduitSearchIndex;
+import gs.java.fs.domain.entities.Description;
+import gs.java.fs.domain.entities.Produit;
+import gs.java.fs.utils.VersionTracker;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Import de produits en flux : le fichier est lu ligne par ligne et les produits valides sont insérés
+ * par lots, chaque lot dans sa propre transaction (insertions groupées par hibernate.jdbc.batch_size).
+ */
+@Service
+public class ProduitImportServiceImpl implements ProduitImportService {
+
+    private static final int MAX_REPORTED_ERRORS = 1000;
+
+    private interface LineParser {
+        ProduitForm parse(String line) throws Exception;
+    }
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final TransactionTemplate transactionTemplate;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final CategorieAggregate categorieAggregate;
+    private final ProduitSearchIndex searchIndex;
+    private final VersionTracker produitVersions;
+    private final int chunkSize;
+
+    public ProduitImportServiceImpl(PlatformTransactionManager transactionManager, Validator validator,
+                                    ObjectMapper objectMapper, CategorieAggregate categorieAggregate,
+                                    ProduitSearchIndex searchIndex,
+                                    @Qualifier("produitVersions") VersionTracker produitVersions,
+                                    @Value("${gardenstore.import.chunk-size:1000}") int chunkSize) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+        this.categorieAggregate = categorieAggregate;
+        this.searchIndex = searchIndex;
+        this.produitVersions = produitVersions;
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public ImportReport importNdjson(InputStream input) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            return run(reader, 1, line -> objectMapper.readValue(line, ProduitForm.class));
+        }
+    }
+
+    @Override
+    public ImportReport importCsv(InputStream input) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            String header = reader.readLine();
+            if (header == null)
+                return new ImportReport(0, 0, List.of(), 0, 0);
+            List<String> columns = splitCsv(header);
+            Map<String, Integer> index = new HashMap<>();
+            for (int i = 0; i < columns.size(); i++)
+                index.put(columns.get(i).trim(), i);
+            return run(reader, 2, line -> {
+                List<String> cells = splitCsv(line);
+                return new ProduitForm(
+                        cell(cells, index, "nom"),
+                        integer(cell(cells, index, "reference")),
+                        integer(cell(cells, index, "prixDeVente")),
+                        null,
+                        integer(cell(cells, index, "stock")),
+                        cell(cells, index, "avis"),
+                        cell(cells, index, "categorie") == null ? null : Description.valueOf(cell(cells, index, "categorie").trim())
+                );
+            });
+        }
+    }
+
+    private ImportReport run(BufferedReader reader, long firstLine, LineParser parser) throws IOException {
+        long start = System.nanoTime();
+        long rows = 0;
+        long imported = 0;
+        long lineNumber = firstLine - 1;
+        List<ImportReport.RowError> errors = new ArrayList<>();
+        List<Produit> chunk = new ArrayList<>(chunkSize);
+        long chunkFirstLine = firstLine;
+
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank())
+                continue;
+            rows++;
+            if (chunk.isEmpty())
+                chunkFirstLine = lineNumber;
+            try {
+                ProduitForm form = parser.parse(line);
+                Set<ConstraintViolation<ProduitForm>> violations = validator.validate(form);
+                if (!violations.isEmpty()) {
+                    error(errors, lineNumber, violations.stream()
+                            .map(v -> v.getPropertyPath() + " " + v.getMessage())
+                            .collect(Collectors.joining(", ")));
+                    continue;
+                }
+                Produit produit = form.toEntity();
+                produit.setId(null);
+                chunk.add(produit);
+            } catch (Exception ex) {
+                error(errors, lineNumber, ex.getMessage());
+                continue;
+            }
+            if (chunk.size() == chunkSize) {
+                imported += flush(chunk, chunkFirstLine, lineNumber, errors);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty())
+            imported += flush(chunk, chunkFirstLine, lineNumber, errors);
+
+        long durationMillis = Math.max((System.nanoTime() - start) / 1_000_000, 1);
+        return new ImportReport(rows, imported, errors, durationMillis, rows * 1000.0 / durationMillis);
+    }
+
+    private int flush(List<Produit> chunk, long fromLine, long toLine, List<ImportReport.RowError> errors) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                for (Produit produit : chunk)
+                    entityManager.persist(produit);
+                entityManager.flush();
+                entityManager.clear();
+            });
+        } catch (RuntimeException ex) {
+            error(errors, fromLine, "lot des lignes " + fromLine + " à " + toLine + " rejeté : " + ex.getMessage());
+            return 0;
+        }
+        for (Produit produit : chunk) {
+            categorieAggregate.onSaved(null, produit);
+            searchIndex.index(produit);
+            produitVersions.changed(produit.getId(), produit.getVersion());
+        }
+        return chunk.size();
+    }
+
+    private static void error(List<ImportReport.RowError> errors, long line, String message) {
+        if (errors.size() < MAX_REPORTED_ERRORS)
+            errors.add(new ImportReport.RowError(line, message));
+    }
+
+    private static String cell(List<String> cells, Map<String, Integer> index, String column) {
+        Integer i = index.get(column);
+        return i == null || i >= cells.size() || cells.get(i).isEmpty() ? null : cells.get(i);
+    }
+
+    private static Integer integer(String value) {
+        return value == null ? null : Integer.valueOf(value.trim());
+    }
+
+    // découpe une ligne CSV en respectant les champs entre guillemets ("" = guillemet échappé)
+    static List<String> splitCsv(String line) {
+        List<String> cells = new ArrayList<>();
+        StringBuilder cell = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    cell.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    cell.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                cells.add(cell.toString());
+                cell.setLength(0);
+            } else {
+                cell.append(c);
+            }
+        }
+        cells.add(cell.toString());
+        return cells;
+    }
+}
@@ -1,50 +1,245 @@
 package gs.java.fs.bll.impl;
 
+import gs.java.fs.api.models.dtos.ProduitDTO;
+import gs.java.fs.api.models.form.ProduitPatchForm;
 import gs.java.fs.dal.ProduitRepository;
+import gs.java.fs.dal.SqlPatch;
+import gs.java.fs.bll.CategorieAggregate;
+import gs.java.fs.bll.ProduitSearchIndex;
 import gs.java.fs.bll.ProduitService;
+import gs.java.fs.bll.StockReservationService;
+import gs.java.fs.bll.ProduitSort;
+import gs.java.fs.domain.entities.Description;
 import gs.java.fs.domain.entities.Produit;
-import jakarta.transaction.Transactional;
+import gs.java.fs.utils.AfterCommit;
+import gs.java.fs.utils.BoundedCache;
+import gs.java.fs.utils.KeysetCursor;
+import gs.java.fs.utils.VersionTracker;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 @Service
 @Transactional
 public class ProduitServiceImpl implements ProduitService {
 
+    // l'état précédent est lu dans la même instruction (sous-requête FOR UPDATE) pour tenir les agrégats à jour
+    private static final String PATCH_SQL = """
+            update produit p set %s, version = p.version + 1
+            from (select id, prix_de_vente, stock, "catégorie" from produit where id = :id for update) old
+            where p.id = old.id
+            returning p.id, p.nom, p."référence", p.prix_de_vente, p.stock, p.avis, p."catégorie", p.version,
+                      old.prix_de_vente as old_prix_de_vente, old.stock as old_stock, old."catégorie" as old_categorie
+            """;
+
+    private record Patched(Produit saved, Produit previous) { }
+
     private final ProduitRepository produitRepository;
+    private final BoundedCache<Long, Produit> produitCache;
+    private final CategorieAggregate categorieAggregate;
+    private final ProduitSearchIndex searchIndex;
+    private final StockReservationService stockReservationService;
+    private final VersionTracker produitVersions;
+    private final NamedParameterJdbcTemplate jdbcTemplate;
 
-    public ProduitServiceImpl(ProduitRepository produitRepository) {
+    public ProduitServiceImpl(ProduitRepository produitRepository, BoundedCache<Long, Produit> produitCache,
+                              CategorieAggregate categorieAggregate, ProduitSearchIndex searchIndex,
+                              StockReservationService stockReservationService,
+                              @Qualifier("produitVersions") VersionTracker produitVersions,
+                              NamedParameterJdbcTemplate jdbcTemplate) {
         this.produitRepository = produitRepository;
+        this.produitCache = produitCache;
+        this.categorieAggregate = categorieAggregate;
+        this.searchIndex = searchIndex;
+        this.stockReservationService = stockReservationService;
+        this.produitVersions = produitVersions;
+        this.jdbcTemplate = jdbcTemplate;
     }
 
+    // servi depuis le cache : pas de transaction (ni de connexion) ouverte quand l'entrée est présente
     @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
     public Produit getOne(Long id) {
-        return produitRepository.findById(id).orElseThrow(()->new RuntimeException("aucun produit trouvé avec cet ID"));
+        return cached(id, "aucun produit trouvé avec cet ID");
     }
     @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
     public Produit getOneId(Long id) {
-        return produitRepository.findById(id).orElseThrow(()->new RuntimeException("aucun mobilier trouvé avec cet ID"));
+        Produit produit = cached(id, "aucun mobilier trouvé avec cet ID");
+        if (produit.getCategorie() != Description.MOBILIER)
+            throw new RuntimeException("aucun mobilier trouvé avec cet ID");
+        return produit;
+    }
+
+    // le cache ne contient que des copies détachées : l'appelant peut modifier l'instance renvoyée sans l'altérer
+    private Produit cached(Long id, String notFound) {
+        Produit produit = produitCache.getOrLoad(id, key -> produitRepository.findById(key).map(Produit::copy).orElse(null));
+        if (produit == null)
+            throw new RuntimeException(notFound);
+        produitVersions.record(id, produit.getVersion());
+        return produit.copy();
     }
     @Override
     public List<Produit> getAll() {
         return produitRepository.findAll();
     }
+    @Override
+    @Transactional(readOnly = true)
+    public List<ProduitDTO> getAllDTO() {
+        return produitRepository.findAllDto();
+    }
+    @Override
+    public List<Produit> getPage(ProduitSort sort, KeysetCursor after, int limit) {
+        Pageable pageable = PageRequest.of(0, limit);
+        return switch (sort) {
+            case ID -> produitRepository.findPageAfterId(after.id(), pageable);
+            case PRIX_DE_VENTE -> produitRepository.findPageAfterPrixDeVente(
+                    after.key() == null ? Integer.MIN_VALUE : Integer.valueOf(after.key()), after.id(), pageable);
+            case NOM -> produitRepository.findPageAfterNom(
+                    after.key() == null ? "" : after.key(), after.id(), pageable);
+        };
+    }
+    @Override
+    public List<Produit> getByCategorie(Description categorie) {
+        return produitRepository.findByCategorieOrderById(categorie);
+    }
+    @Override
+    public List<Produit> getPageByCategorie(Description categorie, KeysetCursor after, int limit) {
+        return produitRepository.findPageByCategorieAfterId(categorie, after.id(), PageRequest.of(0, limit));
+    }
 
     @Override
     public Produit add(Produit produit) {
-        return produitRepository.save(produit);
+        return save(produit);
     }
 
     @Override
     public Produit update(Long id, Produit produit) {
         produit.setId(id);
-        return produitRepository.save(produit);
+        return save(produit);
+    }
+    @Override
+    public Produit patch(Long id, ProduitPatchForm form) {
+        SqlPatch patch = new SqlPatch()
+                .set("nom", "nom", form.nom())
+                .set("\"référence\"", "reference", form.reference())
+                .set("prix_de_vente", "prixDeVente", form.prixDeVente())
+                .set("stock", "stock", form.stock())
+                .set("avis", "avis", form.avis())
+                .set("\"catégorie\"", "categorie", form.categorie())
+                .param("id", id);
+        if (patch.isEmpty())
+            return getOne(id);
+
+        List<Patched> rows = jdbcTemplate.query(PATCH_SQL.formatted(patch.setClause()), patch.params(), (rs, i) -> {
+            Produit saved = new Produit();
+            saved.setId(rs.getLong("id"));
+            saved.setNom(rs.getString("nom"));
+            saved.setReference(rs.getObject("référence", Integer.class));
+            saved.setPrixDeVente(rs.getObject("prix_de_vente", Integer.class));
+            saved.setStock(rs.getObject("stock", Integer.class));
+            saved.setAvis(rs.getString("avis"));
+            saved.setCategorie(Description.valueOf(rs.getString("catégorie")));
+            saved.setVersion(rs.getLong("version"));
+            Produit old = new Produit();
+            old.setPrixDeVente(rs.getObject("old_prix_de_vente", Integer.class));
+            old.setStock(rs.getObject("old_stock", Integer.class));
+            old.setCategorie(Description.valueOf(rs.getString("old_categorie")));
+            return new Patched(saved, old);
+        });
+        if (rows.isEmpty())
+            throw new RuntimeException("aucun produit trouvé avec cet ID");
+
+        Produit saved = rows.get(0).saved();
+        Produit snapshot = saved.copy();
+        Produit previous = rows.get(0).previous();
+        boolean reindex = form.nom() != null || form.avis() != null;
+        AfterCommit.run(() -> {
+            produitCache.put(id, snapshot);
+            categorieAggregate.onSaved(previous, snapshot);
+            if (reindex)
+                searchIndex.index(snapshot);
+        });
+        if (form.stock() != null)
+            stockReservationService.resync(id);
+        AfterCommit.run(() -> produitVersions.changed(id, snapshot.getVersion()));
+        return saved;
     }
     @Override
     public Produit delete(Long id) {
-        Produit produit = getOne(id);
+        Produit produit = produitRepository.findById(id).orElseThrow(()->new RuntimeException("aucun produit trouvé avec cet ID"));
+        Produit deleted = produit.copy();
         produitRepository.delete(produit);
-        return produit;
+        AfterCommit.run(() -> {
+            produitCache.invalidate(id);
+            categorieAggregate.onDeleted(deleted);
+            searchIndex.unindex(id);
+        });
+        stockReservationService.resync(id);
+        AfterCommit.run(() -> produitVersions.removed(id));
+        return deleted;
+    }
+
+    // l'état précédent est lu avant le merge : il reste dans le contexte de persistance, save() ne refait pas de SELECT
+    // cache, agrégats et index de recherche ne sont mis à jour qu'après le commit : un rollback ne laisse rien de non validé visible
+    private Produit save(Produit produit) {
+        Produit previous = produit.getId() == null ? null
+                : produitRepository.findById(produit.getId()).map(Produit::copy).orElse(null);
+        Produit saved = produitRepository.saveAndFlush(produit);
+        Produit snapshot = saved.copy();
+        AfterCommit.run(() -> {
+            produitCache.put(snapshot.getId(), snapshot);
+            categorieAggregate.onSaved(previous, snapshot);
+            searchIndex.index(snapshot);
+        });
+        stockReservationService.resync(saved.getId());
+        AfterCommit.run(() -> produitVersions.changed(snapshot.getId(), snapshot.getVersion()));
+        return saved;
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public BoundedCache.Stats cacheStats() {
+        return produitCache.stats();
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public String etag(Long id) {
+        String etag = produitVersions.etag(id);
+        return etag != null ? etag : VersionTracker.etag(id, getOne(id).getVersion());
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public String collectionEtag() {
+        return produitVersions.collectionEtag();
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public List<CategorieAggregate.Stats> categorieStats() {
+        return categorieAggregate.snapshot();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Produit> search(String query, int limit) {
+        List<Long> ids = searchIndex.search(query, limit);
+        Map<Long, Integer> rank = new HashMap<>();
+        for (int i = 0; i < ids.size(); i++)
+            rank.put(ids.get(i), i);
+        return produitRepository.findAllById(ids).stream()
+                .sorted(Comparator.comparing(produit -> rank.get(produit.getId())))
+                .toList();
     }
 
 
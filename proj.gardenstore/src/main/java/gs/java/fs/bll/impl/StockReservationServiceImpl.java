@@ -0,0 +1,275 @@
+package gs.java.fs.bll.impl;
+
+import gs.java.fs.bll.CategorieAggregate;
+import gs.java.fs.bll.StockReservation;
+import gs.java.fs.bll.StockReservationService;
+import gs.java.fs.dal.ProduitRepository;
+import gs.java.fs.domain.entities.Description;
+import gs.java.fs.domain.entities.Produit;
+import gs.java.fs.exceptions.StockInsuffisantException;
+import gs.java.fs.utils.AfterCommit;
+import gs.java.fs.utils.BoundedCache;
+import gs.java.fs.utils.VersionTracker;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Réservation de stock : le stock réservé est retiré tout de suite de la table produit par un UPDATE
+ * conditionnel ({@code stock >= quantité}), qui reste la seule source de vérité, et la réservation est
+ * enregistrée dans la même transaction (table reservation_stock) : un redémarrage ne perd aucun stock.
+ * Un compteur en mémoire par produit, décrémenté par CAS, refuse sans aller en base
+ * les demandes qui ne peuvent pas être servies (cas typique d'un produit en rupture très demandé).
+ */
+@Service
+@Transactional
+public class StockReservationServiceImpl implements StockReservationService {
+    // les lignes sont verrouillées par id croissant avant la mise à jour :
+    // deux paniers concurrents prennent leurs verrous dans le même ordre et ne peuvent pas s'interbloquer
+    private static final String TAKE_SQL = """
+            with demande(id, quantite) as (values :lignes),
+                 verrou as (select p.id from produit p where p.id in (select id from demande) order by p.id for update)
+            update produit p set stock = p.stock - d.quantite, version = p.version + 1
+            from demande d join verrou v on v.id = d.id
+            where p.id = d.id and p.stock >= d.quantite
+            returning p.id, p.prix_de_vente, p."catégorie", p.version
+            """;
+    private static final String GIVE_BACK_SQL = """
+            with demande(id, quantite) as (values :lignes),
+                 verrou as (select p.id from produit p where p.id in (select id from demande) order by p.id for update)
+            update produit p set stock = p.stock + d.quantite, version = p.version + 1
+            from demande d join verrou v on v.id = d.id
+            where p.id = d.id
+            returning p.id, p.prix_de_vente, p."catégorie", p.version
+            """;
+    private static final String DECREMENT_SQL = """
+            update produit set stock = stock - :quantite, version = version + 1
+            where id = :id and stock >= :quantite
+            returning version
+            """;
+    private static final String INSERT_SQL = """
+            insert into reservation_stock (reservation_id, produit_id, "quantité", expire_le)
+            values (:id, :produitId, :quantite, :expiresAt)
+            """;
+    // la suppression sert de prise exclusive : une réservation n'est confirmée ou libérée qu'une fois
+    private static final String CLAIM_SQL = """
+            delete from reservation_stock where reservation_id = :id and expire_le >= :now
+            returning reservation_id, produit_id, "quantité", expire_le
+            """;
+    private static final String RELEASE_SQL = """
+            delete from reservation_stock where reservation_id = :id
+            returning reservation_id, produit_id, "quantité", expire_le
+            """;
+    // skip locked : plusieurs instances balaient en parallèle sans se gêner ni rendre deux fois le même stock
+    private static final String SWEEP_SQL = """
+            delete from reservation_stock r
+            where r.reservation_id in (select reservation_id from reservation_stock where expire_le < :now
+                                       order by expire_le limit :batch for update skip locked)
+            returning r.reservation_id, r.produit_id, r."quantité", r.expire_le
+            """;
+
+    private static final RowMapper<StockReservation> RESERVATION_MAPPER = (rs, i) -> new StockReservation(
+            rs.getObject("reservation_id", UUID.class),
+            rs.getLong("produit_id"),
+            rs.getInt("quantité"),
+            rs.getTimestamp("expire_le").toInstant()
+    );
+
+    private record Moved(Long produitId, Integer prixDeVente, Description categorie, Long version) { }
+
+    private record Counter(AtomicInteger units, Description categorie) { }
+
+    private final ProduitRepository produitRepository;
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final BoundedCache<Long, Produit> produitCache;
+    private final CategorieAggregate categorieAggregate;
+    private final VersionTracker produitVersions;
+    private final int sweepBatch;
+    private final ConcurrentHashMap<Long, Counter> counters = new ConcurrentHashMap<>();
+
+    public StockReservationServiceImpl(ProduitRepository produitRepository, NamedParameterJdbcTemplate jdbcTemplate,
+                                       BoundedCache<Long, Produit> produitCache, CategorieAggregate categorieAggregate,
+                                       @Qualifier("produitVersions") VersionTracker produitVersions,
+                                       @Value("${gardenstore.reservation.sweep-batch:1000}") int sweepBatch) {
+        this.produitRepository = produitRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.produitCache = produitCache;
+        this.categorieAggregate = categorieAggregate;
+        this.produitVersions = produitVersions;
+        this.sweepBatch = sweepBatch;
+    }
+
+    @Override
+    public StockReservation reserve(Long produitId, int quantite, Duration ttl) {
+        if (quantite <= 0)
+            throw new IllegalArgumentException("la quantité réservée doit être positive");
+        Counter counter = counters.computeIfAbsent(produitId, this::load);
+        if (!tryTake(counter.units(), quantite))
+            throw new StockInsuffisantException("stock insuffisant pour le produit " + produitId);
+        restoreOnRollback(counter, quantite);
+        List<Long> version = jdbcTemplate.queryForList(DECREMENT_SQL, new MapSqlParameterSource()
+                .addValue("id", produitId)
+                .addValue("quantite", quantite), Long.class);
+        if (version.isEmpty()) {
+            // le stock a été modifié hors réservation : le compteur sera relu au prochain appel
+            counters.remove(produitId, counter);
+            throw new StockInsuffisantException("stock insuffisant pour le produit " + produitId);
+        }
+        StockReservation reservation = new StockReservation(UUID.randomUUID(), produitId, quantite, Instant.now().plus(ttl));
+        jdbcTemplate.update(INSERT_SQL, new MapSqlParameterSource()
+                .addValue("id", reservation.id())
+                .addValue("produitId", produitId)
+                .addValue("quantite", quantite)
+                .addValue("expiresAt", Timestamp.from(reservation.expiresAt())));
+        stockChanged(produitId, counter.categorie(), -quantite, version.get(0));
+        return reservation;
+    }
+
+    @Override
+    public StockReservation confirm(UUID reservationId) {
+        List<StockReservation> claimed = jdbcTemplate.query(CLAIM_SQL, new MapSqlParameterSource()
+                .addValue("id", reservationId)
+                .addValue("now", Timestamp.from(Instant.now())), RESERVATION_MAPPER);
+        if (!claimed.isEmpty())
+            return claimed.get(0);
+        // une réservation expirée reste en table jusqu'au balayage, qui rend son stock
+        Integer expired = jdbcTemplate.queryForObject(
+                "select count(*) from reservation_stock where reservation_id = :id",
+                new MapSqlParameterSource("id", reservationId), Integer.class);
+        if (expired != null && expired > 0)
+            throw new RuntimeException("la réservation a expiré");
+        throw new RuntimeException("aucune réservation trouvée avec cet ID");
+    }
+
+    @Override
+    public StockReservation release(UUID reservationId) {
+        List<StockReservation> released = jdbcTemplate.query(RELEASE_SQL,
+                new MapSqlParameterSource("id", reservationId), RESERVATION_MAPPER);
+        if (released.isEmpty())
+            throw new RuntimeException("aucune réservation trouvée avec cet ID");
+        StockReservation reservation = released.get(0);
+        giveBack(new TreeMap<>(Map.of(reservation.produitId(), reservation.quantite())));
+        return reservation;
+    }
+
+    @Override
+    public void resync(Long produitId) {
+        counters.remove(produitId);
+        // un compteur relu avant le commit de l'écriture serait périmé : on le retire aussi après
+        AfterCommit.run(() -> counters.remove(produitId));
+    }
+
+    @Override
+    public Map<Long, Integer> take(SortedMap<Long, Integer> quantites) {
+        List<Moved> moved = move(TAKE_SQL, quantites);
+        if (moved.size() < quantites.size()) {
+            // une ligne n'a pas pu être servie : l'exception annule la transaction, donc aussi les autres lignes
+            throw new StockInsuffisantException("stock insuffisant pour au moins un produit de la commande");
+        }
+        Map<Long, Integer> prix = new HashMap<>();
+        for (Moved row : moved) {
+            prix.put(row.produitId(), row.prixDeVente());
+            // le compteur de réservation sera relu en base au prochain appel
+            resync(row.produitId());
+            stockChanged(row.produitId(), row.categorie(), -quantites.get(row.produitId()), row.version());
+        }
+        return prix;
+    }
+
+    @Override
+    public void giveBack(SortedMap<Long, Integer> quantites) {
+        for (Moved row : move(GIVE_BACK_SQL, quantites)) {
+            int quantite = quantites.get(row.produitId());
+            AfterCommit.run(() -> {
+                Counter counter = counters.get(row.produitId());
+                if (counter != null)
+                    counter.units().addAndGet(quantite);
+            });
+            stockChanged(row.produitId(), row.categorie(), quantite, row.version());
+        }
+    }
+
+    /**
+     * Rend le stock d'un lot de réservations expirées ; un lot par passage et par transaction.
+     */
+    @Scheduled(fixedDelayString = "${gardenstore.reservation.sweep-ms:5000}")
+    public void releaseExpired() {
+        List<StockReservation> expired = jdbcTemplate.query(SWEEP_SQL, new MapSqlParameterSource()
+                .addValue("now", Timestamp.from(Instant.now()))
+                .addValue("batch", sweepBatch), RESERVATION_MAPPER);
+        SortedMap<Long, Integer> quantites = new TreeMap<>();
+        for (StockReservation reservation : expired)
+            quantites.merge(reservation.produitId(), reservation.quantite(), Integer::sum);
+        giveBack(quantites);
+    }
+
+    // un rollback après le CAS (échec de l'UPDATE ou de l'INSERT) rend les unités au compteur
+    private static void restoreOnRollback(Counter counter, int quantite) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive())
+            return;
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED)
+                    counter.units().addAndGet(quantite);
+            }
+        });
+    }
+
+    private void stockChanged(Long produitId, Description categorie, int delta, Long version) {
+        AfterCommit.run(() -> {
+            produitCache.invalidate(produitId);
+            produitVersions.changed(produitId, version);
+            categorieAggregate.adjustStock(categorie, delta);
+        });
+    }
+
+    private List<Moved> move(String sql, SortedMap<Long, Integer> quantites) {
+        if (quantites.isEmpty())
+            return List.of();
+        List<Object[]> lignes = quantites.entrySet().stream()
+                .map(e -> new Object[]{e.getKey(), e.getValue()})
+                .toList();
+        return jdbcTemplate.query(sql, new MapSqlParameterSource("lignes", lignes), (rs, i) -> new Moved(
+                rs.getLong("id"),
+                rs.getInt("prix_de_vente"),
+                Description.valueOf(rs.getString("catégorie")),
+                rs.getLong("version")
+        ));
+    }
+
+    private Counter load(Long produitId) {
+        Produit produit = produitRepository.findById(produitId)
+                .orElseThrow(() -> new RuntimeException("aucun produit trouvé avec cet ID"));
+        return new Counter(new AtomicInteger(produit.getStock()), produit.getCategorie());
+    }
+
+    private static boolean tryTake(AtomicInteger units, int quantite) {
+        int current;
+        do {
+            current = units.get();
+            if (current < quantite)
+                return false;
+        } while (!units.compareAndSet(current, current - quantite));
+        return true;
+    }
+}
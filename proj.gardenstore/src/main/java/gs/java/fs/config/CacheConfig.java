@@ -0,0 +1,51 @@
+package gs.java.fs.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import gs.java.fs.bll.ClientCredentials;
+import gs.java.fs.domain.entities.Produit;
+import gs.java.fs.utils.BoundedCache;
+import gs.java.fs.utils.IdempotencyStore;
+import gs.java.fs.utils.VersionTracker;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+public class CacheConfig {
+
+    @Bean
+    public BoundedCache<Long, Produit> produitCache(
+            @Value("${gardenstore.cache.produit.max-size:50000}") int maxSize,
+            @Value("${gardenstore.cache.produit.ttl:PT10M}") Duration ttl) {
+        // gardé par @Version : un chargement concurrent ne remplace jamais un produit plus récent
+        return new BoundedCache<>(maxSize, ttl, produit -> produit.getVersion() == null ? 0L : produit.getVersion());
+    }
+
+    @Bean
+    public BoundedCache<String, ClientCredentials> credentialsCache(
+            @Value("${gardenstore.cache.credentials.max-size:20000}") int maxSize,
+            @Value("${gardenstore.cache.credentials.ttl:PT5M}") Duration ttl) {
+        return new BoundedCache<>(maxSize, ttl);
+    }
+
+    @Bean
+    public IdempotencyStore idempotencyStore(
+            @Value("${gardenstore.idempotency.max-size:100000}") int maxSize,
+            @Value("${gardenstore.idempotency.ttl:PT24H}") Duration ttl,
+            @Value("${gardenstore.idempotency.wait-timeout:PT30S}") Duration waitTimeout,
+            ObjectMapper objectMapper) {
+        return new IdempotencyStore(maxSize, ttl, waitTimeout, objectMapper);
+    }
+
+    @Bean
+    public VersionTracker produitVersions() {
+        return new VersionTracker();
+    }
+
+    @Bean
+    public VersionTracker livreurVersions() {
+        return new VersionTracker();
+    }
+}
@@ -0,0 +1,87 @@
+package gs.java.fs.config;
+
+import gs.java.fs.utils.BoundedCache;
+import gs.java.fs.utils.JwtTokenUtil;
+import io.jsonwebtoken.JwtException;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.Base64;
+
+/**
+ * Authentifie les requêtes portant "Authorization: Bearer ..." à partir des seuls claims du jeton,
+ * sans accès à la base. Les claims des jetons déjà vérifiés sont gardés dans un cache LRU borné indexé par leur
+ * empreinte SHA-256 : une requête répétée évite la vérification HMAC et l'analyse JSON. L'objet Authentication
+ * est recréé à chaque requête, la suite de la chaîne pouvant le modifier (setDetails, eraseCredentials).
+ * Un jeton absent ou invalide laisse la requête anonyme ; les règles d'accès décident ensuite.
+ */
+public class JwtAuthenticationFilter extends OncePerRequestFilter {
+
+    private static final String BEARER = "Bearer ";
+
+    private final JwtTokenUtil jwtTokenUtil;
+    private final BoundedCache<String, JwtTokenUtil.JwtPrincipal> verified;
+
+    public JwtAuthenticationFilter(JwtTokenUtil jwtTokenUtil,
+                                   BoundedCache<String, JwtTokenUtil.JwtPrincipal> verified) {
+        this.jwtTokenUtil = jwtTokenUtil;
+        this.verified = verified;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String header = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (header != null && header.startsWith(BEARER)) {
+            UsernamePasswordAuthenticationToken authentication = authenticate(header.substring(BEARER.length()).trim());
+            if (authentication != null)
+                SecurityContextHolder.getContext().setAuthentication(authentication);
+        }
+        chain.doFilter(request, response);
+    }
+
+    private UsernamePasswordAuthenticationToken authenticate(String token) {
+        String key = sha256(token);
+        JwtTokenUtil.JwtPrincipal cached = verified.get(key);
+        if (cached != null) {
+            if (cached.expiresAt().isAfter(Instant.now()))
+                return authentication(cached);
+            verified.invalidate(key);
+            return null;
+        }
+        try {
+            JwtTokenUtil.JwtPrincipal principal = jwtTokenUtil.parse(token);
+            verified.put(key, principal);
+            return authentication(principal);
+        } catch (JwtException | IllegalArgumentException ex) {
+            return null;
+        }
+    }
+
+    // le principal est immuable et partageable, l'Authentication ne l'est pas
+    private static UsernamePasswordAuthenticationToken authentication(JwtTokenUtil.JwtPrincipal principal) {
+        return UsernamePasswordAuthenticationToken.authenticated(
+                principal, null, principal.roles().stream().map(SimpleGrantedAuthority::new).toList());
+    }
+
+    private static String sha256(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
@@ -1,5 +1,9 @@
 package gs.java.fs.config;
 
+import gs.java.fs.utils.BoundedCache;
+import gs.java.fs.utils.BoundedPasswordEncoder;
+import gs.java.fs.utils.JwtTokenUtil;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -8,8 +12,11 @@ import org.springframework.security.config.annotation.method.configuration.Enabl
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+
+import java.time.Duration;
 
 @Configuration
 @EnableWebSecurity()
@@ -17,8 +24,13 @@ import org.springframework.security.web.SecurityFilterChain;
 public class SecurityConfig  {
 
     @Bean
-    public BCryptPasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public BoundedPasswordEncoder passwordEncoder(
+            @Value("${gardenstore.password.bcrypt-cost:10}") int cost,
+            @Value("${gardenstore.password.threads:0}") int threads,
+            @Value("${gardenstore.password.queue-capacity:64}") int queueCapacity,
+            @Value("${gardenstore.password.retry-after-seconds:1}") long retryAfterSeconds) {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        return new BoundedPasswordEncoder(cost, poolSize, queueCapacity, retryAfterSeconds);
     }
 
     @Bean
@@ -27,7 +39,12 @@ public class SecurityConfig  {
     }
 
     @Bean
-    public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain securityFilterChain(HttpSecurity http, JwtTokenUtil jwtTokenUtil,
+                                                   @Value("${gardenstore.jwt.cache.max-size:10000}") int cacheSize,
+                                                   @Value("${gardenstore.jwt.cache.ttl:PT15M}") Duration cacheTtl) throws Exception {
+        // créé ici et non déclaré comme bean : Spring Boot l'enregistrerait sinon une seconde fois comme filtre servlet
+        JwtAuthenticationFilter jwtFilter = new JwtAuthenticationFilter(jwtTokenUtil,
+                BoundedCache.<String, JwtTokenUtil.JwtPrincipal>lru(cacheSize, cacheTtl));
         http.authorizeHttpRequests(
                registry -> registry
 //                    .requestMatchers("/admin").hasRole("ADMIN")
@@ -35,7 +52,9 @@ public class SecurityConfig  {
                    .anyRequest().permitAll()
         );
         http.csrf(AbstractHttpConfigurer::disable)
-                .cors(AbstractHttpConfigurer::disable);
+                .cors(AbstractHttpConfigurer::disable)
+                .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+                .addFilterBefore(jwtFilter, UsernamePasswordAuthenticationFilter.class);
 
         return http.build();
     }
@@ -1,10 +1,15 @@
 package gs.java.fs.dal;
 
+import gs.java.fs.api.models.dtos.ClientDTO;
+import gs.java.fs.bll.ClientCredentials;
 import gs.java.fs.domain.entities.Client;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -13,4 +18,29 @@ public interface ClientRepository extends JpaRepository<Client, Long> {
    @Query("select c from Client c where c.mail = :email")
    Optional<Client> findClientByEmail(String email);
 
+   @Query("select new gs.java.fs.bll.ClientCredentials(c.id, c.mail, c.password) from Client c where c.mail = :email")
+   Optional<ClientCredentials> findCredentialsByEmail(String email);
+
+   @Modifying
+   @Query("update Client c set c.password = :password where c.mail = :email")
+   int updatePassword(String email, String password);
+
+   @Query("select count(c) > 0 from Client c where c.mail = :mail")
+   boolean existsByMail(String mail);
+
+   @Query("select c.id, c.mail from Client c where c.id > :afterId order by c.id")
+   List<Object[]> findMailPageAfterId(Long afterId, Pageable pageable);
+
+   @Query("select c.mail from Client c where c.id = :id")
+   Optional<String> findMailById(Long id);
+
+   @Query("select new gs.java.fs.api.models.dtos.ClientDTO(c.id, c.nom, c.prenom, c.addresse, c.mail, c.telephone) from Client c order by c.id")
+   List<ClientDTO> findAllDto();
+
+   @Query("select new gs.java.fs.api.models.dtos.ClientDTO(c.id, c.nom, c.prenom, c.addresse, c.mail, c.telephone) from Client c where c.id = :id")
+   Optional<ClientDTO> findDtoById(Long id);
+
+   @Query("select c from Client c where c.id > :afterId order by c.id")
+   List<Client> findPageAfterId(Long afterId, Pageable pageable);
+
 }
\ No newline at end of file
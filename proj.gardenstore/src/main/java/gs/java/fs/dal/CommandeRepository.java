@@ -1,11 +1,53 @@
 package gs.java.fs.dal;
 
+import gs.java.fs.api.models.dtos.CommandeDTO;
+import gs.java.fs.api.models.dtos.LigneCommandeDTO;
 import gs.java.fs.domain.entities.Commande;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
 @Repository
 public interface CommandeRepository extends JpaRepository<Commande, Long> {
 
-}
\ No newline at end of file
+    @Query("select new gs.java.fs.api.models.dtos.CommandeDTO(c.id, c.montant, c.dateCommande, c.quantite, c.nCommande, c.statut) from Commande c order by c.id")
+    List<CommandeDTO> findAllDto();
+
+    @Query("select new gs.java.fs.api.models.dtos.CommandeDTO(c.id, c.montant, c.dateCommande, c.quantite, c.nCommande, c.statut) from Commande c where c.id = :id")
+    Optional<CommandeDTO> findDtoById(Long id);
+
+    @Query("select new gs.java.fs.api.models.dtos.LigneCommandeDTO(l.id, l.produit.id, l.quantite, l.prixUnitaire) from LigneCommande l where l.commande.id = :id order by l.id")
+    List<LigneCommandeDTO> findLignesByCommandeId(Long id);
+
+    @Query("select c.dateCommande, l.id, count(c), sum(c.montant), sum(c.quantite) from Commande c left join c.deliveredBy l group by c.dateCommande, l.id")
+    List<Object[]> aggregateByDateAndLivreur();
+
+    @Query("select c from Commande c where c.id > :afterId order by c.id")
+    List<Commande> findPageAfterId(Long afterId, Pageable pageable);
+
+    @Query("""
+            select new gs.java.fs.api.models.dtos.CommandeDTO(c.id, c.montant, c.dateCommande, c.quantite, c.nCommande, c.statut)
+            from Commande c
+            where c.dateCommande <= :to
+              and (c.dateCommande, c.id) > (:afterDate, :afterId)
+            order by c.dateCommande, c.id
+            """)
+    List<CommandeDTO> findPageByDateRange(LocalDate to, LocalDate afterDate, Long afterId, Pageable pageable);
+
+    @Query("""
+            select new gs.java.fs.api.models.dtos.CommandeDTO(c.id, c.montant, c.dateCommande, c.quantite, c.nCommande, c.statut)
+            from Commande c
+            where c.deliveredBy.id = :livreurId
+              and c.dateCommande <= :to
+              and (c.dateCommande, c.id) > (:afterDate, :afterId)
+            order by c.dateCommande, c.id
+            """)
+    List<CommandeDTO> findPageByLivreurAndDateRange(Long livreurId, LocalDate to, LocalDate afterDate, Long afterId, Pageable pageable);
+
+}
@@ -1,8 +1,32 @@
 package gs.java.fs.dal;
 
+import gs.java.fs.api.models.dtos.LivreurDTO;
 import gs.java.fs.domain.entities.Livreur;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
 @Repository
 public interface LivreurRepository extends JpaRepository<Livreur, Integer>{
-}
\ No newline at end of file
+
+    @Query("select new gs.java.fs.api.models.dtos.LivreurDTO(l.id, l.nom, l.prénom, l.nomContact, l.email, l.societe) from Livreur l order by l.id")
+    List<LivreurDTO> findAllDto();
+
+    @Query("select new gs.java.fs.api.models.dtos.LivreurDTO(l.id, l.nom, l.prénom, l.nomContact, l.email, l.societe) from Livreur l where l.id = :id")
+    Optional<LivreurDTO> findDtoById(Long id);
+
+    @EntityGraph("Livreur.commandes")
+    Optional<Livreur> findWithCommandesById(Long id);
+
+    @Query("select l.version from Livreur l where l.id = :id")
+    Optional<Long> findVersionById(Long id);
+
+    @Query("select l from Livreur l where l.id > :afterId order by l.id")
+    List<Livreur> findPageAfterId(Long afterId, Pageable pageable);
+
+}
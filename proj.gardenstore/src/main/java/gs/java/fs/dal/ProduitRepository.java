@@ -1,13 +1,38 @@
 package gs.java.fs.dal;
 
 
+import gs.java.fs.api.models.dtos.ProduitDTO;
+import gs.java.fs.domain.entities.Description;
 import gs.java.fs.domain.entities.Produit;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 
 @Repository
 public interface ProduitRepository extends JpaRepository<Produit, Long> {
 
+    @Query("select new gs.java.fs.api.models.dtos.ProduitDTO(p.id, p.nom, p.reference, p.prixDeVente, p.stock, p.avis, p.categorie) from Produit p order by p.id")
+    List<ProduitDTO> findAllDto();
+
+    @Query("select p from Produit p where p.id > :afterId order by p.id")
+    List<Produit> findPageAfterId(Long afterId, Pageable pageable);
+
+    @Query("select p from Produit p where (p.prixDeVente, p.id) > (:prix, :afterId) order by p.prixDeVente, p.id")
+    List<Produit> findPageAfterPrixDeVente(Integer prix, Long afterId, Pageable pageable);
+
+    @Query("select p from Produit p where (p.nom, p.id) > (:nom, :afterId) order by p.nom, p.id")
+    List<Produit> findPageAfterNom(String nom, Long afterId, Pageable pageable);
+
+    List<Produit> findByCategorieOrderById(Description categorie);
+
+    @Query("select p from Produit p where p.categorie = :categorie and p.id > :afterId order by p.id")
+    List<Produit> findPageByCategorieAfterId(Description categorie, Long afterId, Pageable pageable);
+
+    @Query("select p.categorie, p.prixDeVente, count(p), sum(p.stock) from Produit p group by p.categorie, p.prixDeVente")
+    List<Object[]> aggregateByCategorieAndPrix();
 
 }
@@ -0,0 +1,41 @@
+package gs.java.fs.dal;
+
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+
+import java.util.StringJoiner;
+
+/**
+ * Clause SET d'un UPDATE partiel : seules les valeurs non nulles sont écrites.
+ */
+public final class SqlPatch {
+
+    private final StringJoiner set = new StringJoiner(", ");
+    private final MapSqlParameterSource params = new MapSqlParameterSource();
+    private int columns;
+
+    public SqlPatch set(String column, String param, Object value) {
+        if (value != null) {
+            set.add(column + " = :" + param);
+            params.addValue(param, value instanceof Enum<?> e ? e.name() : value);
+            columns++;
+        }
+        return this;
+    }
+
+    public SqlPatch param(String param, Object value) {
+        params.addValue(param, value);
+        return this;
+    }
+
+    public boolean isEmpty() {
+        return columns == 0;
+    }
+
+    public String setClause() {
+        return set.toString();
+    }
+
+    public MapSqlParameterSource params() {
+        return params;
+    }
+}
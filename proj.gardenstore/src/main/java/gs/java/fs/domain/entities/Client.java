@@ -12,13 +12,18 @@ import org.springframework.security.core.userdetails.UserDetails;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 
 @Getter
 @Setter
 @Entity
-@Table(name = "client", schema = "public")
+@Table(name = "client", schema = "public", indexes = {
+        @Index(name = "uk_client_mail", columnList = "mail", unique = true)
+})
 public class Client implements UserDetails {
 
+    public static final List<String> ROLES = List.of("ROLE_CLIENT", "ROLE_ADMIN");
+
     @Transient
     private Client client;
     public Client() { }
@@ -60,8 +65,8 @@ public class Client implements UserDetails {
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
         ArrayList<SimpleGrantedAuthority> roles = new ArrayList<>();
-        roles.add(new SimpleGrantedAuthority("ROLE_CLIENT"));
-            roles.add(new SimpleGrantedAuthority("ROLE_ADMIN"));
+        for (String role : ROLES)
+            roles.add(new SimpleGrantedAuthority(role));
         return roles;
     }
 
@@ -1,25 +1,40 @@
 package gs.java.fs.domain.entities;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
 
+import jakarta.persistence.CascadeType;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.OneToMany;
+import jakarta.persistence.OrderBy;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.BatchSize;
 
 @Setter
 @Getter
 @Entity
-@Table(name = "commande", schema = "public")
+@Table(name = "commande", schema = "public", indexes = {
+        @Index(name = "idx_commande_date_id", columnList = "date_commande, commande_id"),
+        @Index(name = "idx_commande_livreur_date_id", columnList = "delivered_by_livreur_id, date_commande, commande_id")
+})
 public class Commande {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "commande_seq")
+    @SequenceGenerator(name = "commande_seq", sequenceName = "commande_seq", allocationSize = 500)
     @Column(name = "commande_id", nullable = false)
     private Long id;
 
@@ -35,6 +50,20 @@ public class Commande {
     @Column(name = "n_commande", nullable = false)
     private Integer nCommande;
 
-    @ManyToOne
+    // code postal de livraison, utilisé pour l'affinité d'affectation des livreurs
+    @Column(name = "code_postal")
+    private Integer codePostal;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "statut", nullable = false, length = 20)
+    private StatutCommande statut = StatutCommande.ENREGISTREE;
+
+    @ManyToOne(fetch = FetchType.LAZY)
     private Livreur deliveredBy;
+
+    // montant et quantité sont calculés à partir des lignes lorsque la commande en a
+    @OneToMany(mappedBy = "commande", cascade = CascadeType.ALL, orphanRemoval = true)
+    @OrderBy("id")
+    @BatchSize(size = 50)
+    private List<LigneCommande> lignes = new ArrayList<>();
 }
@@ -0,0 +1,34 @@
+package gs.java.fs.domain.entities;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+@Entity
+@Table(name = "ligne_commande", schema = "public", indexes = {
+        @Index(name = "idx_ligne_commande_commande_id", columnList = "commande_id, ligne_id")
+})
+public class LigneCommande {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "ligne_commande_seq")
+    @SequenceGenerator(name = "ligne_commande_seq", sequenceName = "ligne_commande_seq", allocationSize = 500)
+    @Column(name = "ligne_id", nullable = false)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "commande_id", nullable = false)
+    private Commande commande;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "produit_id", nullable = false)
+    private Produit produit;
+
+    @Column(name = "quantité", nullable = false)
+    private Integer quantite;
+
+    // prix de vente relevé au moment de la commande
+    @Column(name = "prix_unitaire", nullable = false)
+    private Integer prixUnitaire;
+}
@@ -3,6 +3,7 @@ package gs.java.fs.domain.entities;
 import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.BatchSize;
 
 import java.util.List;
 
@@ -10,6 +11,7 @@ import java.util.List;
 @Setter
 @Entity
 @Table(name = "livreur", schema = "public")
+@NamedEntityGraph(name = "Livreur.commandes", attributeNodes = @NamedAttributeNode("commandes"))
 public class Livreur {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -31,7 +33,13 @@ public class Livreur {
     @Column(name ="societe", nullable = false, length = 25)
     private String societe;
 
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
+
     @OneToMany (mappedBy = "deliveredBy")
+    @OrderBy("id")
+    @BatchSize(size = 50)
     private List<Commande> commandes;
 
 
@@ -7,10 +7,17 @@ import lombok.Setter;
 @Getter
 @Setter
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_produit_prix_id", columnList = "prix_de_vente, id"),
+        @Index(name = "idx_produit_nom_id", columnList = "nom, id"),
+        @Index(name = "idx_produit_categorie_id", columnList = "catégorie, id")
+})
 public class Produit {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
-    @Column(name = "id", nullable = false, insertable = false, updatable = false)
+    // séquence à allocation groupée : contrairement à IDENTITY, elle laisse Hibernate regrouper les INSERT
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "produit_seq")
+    @SequenceGenerator(name = "produit_seq", sequenceName = "produit_seq", allocationSize = 500)
+    @Column(name = "id", nullable = false, updatable = false)
     private Long id;
 
     @Column(name = "nom", nullable = false, length = 50)
@@ -32,6 +39,22 @@ public class Produit {
     @Column(name = "référence", nullable = false, length = 250)
     private Integer reference;
 
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
+
+    public Produit copy() {
+        Produit produit = new Produit();
+        produit.setId(id);
+        produit.setNom(nom);
+        produit.setPrixDeVente(prixDeVente);
+        produit.setStock(stock);
+        produit.setCategorie(categorie);
+        produit.setAvis(avis);
+        produit.setReference(reference);
+        produit.setVersion(version);
+        return produit;
+    }
 
 }
 
@@ -0,0 +1,31 @@
+package gs.java.fs.domain.entities;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Instant;
+import java.util.UUID;
+
+// réservation en cours : le stock est déjà retiré de produit, il y est rendu à la libération ou à l'expiration
+@Getter
+@Setter
+@Entity
+@Table(name = "reservation_stock", schema = "public", indexes = {
+        @Index(name = "idx_reservation_stock_expire_le", columnList = "expire_le")
+})
+public class ReservationStock {
+    @Id
+    @Column(name = "reservation_id", nullable = false, updatable = false)
+    private UUID id;
+
+    // pas de clé étrangère : supprimer un produit ne doit pas échouer sur ses réservations, leur retour devient sans effet
+    @Column(name = "produit_id", nullable = false, updatable = false)
+    private Long produitId;
+
+    @Column(name = "quantité", nullable = false, updatable = false)
+    private Integer quantite;
+
+    @Column(name = "expire_le", nullable = false, updatable = false)
+    private Instant expiresAt;
+}
@@ -0,0 +1,10 @@
+package gs.java.fs.domain.entities;
+
+public enum StatutCommande {
+
+    ENREGISTREE,
+
+    EN_LIVRAISON,
+
+    LIVREE
+}
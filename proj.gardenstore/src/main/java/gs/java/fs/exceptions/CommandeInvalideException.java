@@ -0,0 +1,12 @@
+package gs.java.fs.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class CommandeInvalideException extends IllegalArgumentException {
+
+    public CommandeInvalideException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,12 @@
+package gs.java.fs.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.BAD_REQUEST)
+public class InvalidPageRequestException extends IllegalArgumentException {
+
+    public InvalidPageRequestException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,12 @@
+package gs.java.fs.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.CONFLICT)
+public class StockInsuffisantException extends RuntimeException {
+
+    public StockInsuffisantException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,27 @@
+package gs.java.fs.utils;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Diffère une mise à jour de l'état en mémoire (caches, index, agrégats) après le commit de la transaction
+ * courante : un rollback ne laisse ainsi rien de non validé visible. Hors transaction, l'action s'exécute tout de suite.
+ */
+public final class AfterCommit {
+
+    private AfterCommit() {
+    }
+
+    public static void run(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,93 @@
+package gs.java.fs.utils;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Filtre de Bloom de chaînes, sans verrou (bits posés par compareAndSet).
+ * Réponse « absent » certaine, « peut-être présent » avec un taux de faux positifs réglé à la construction.
+ */
+public class BloomFilter {
+
+    public record Stats(long bits, int hashes, long bytes, long insertions, long expectedInsertions,
+                        double targetFpp, double estimatedFpp) { }
+
+    private final long bitCount;
+    private final int hashes;
+    private final long expectedInsertions;
+    private final double targetFpp;
+    private final AtomicLongArray words;
+    private final LongAdder insertions = new LongAdder();
+
+    public BloomFilter(long expectedInsertions, double fpp) {
+        long n = Math.max(1, expectedInsertions);
+        // m = -n ln p / (ln 2)^2, k = m/n ln 2
+        long m = (long) Math.ceil(-n * Math.log(fpp) / (Math.log(2) * Math.log(2)));
+        this.bitCount = Math.max(64, (m + 63) / 64 * 64);
+        this.hashes = Math.max(1, (int) Math.round((double) bitCount / n * Math.log(2)));
+        this.expectedInsertions = n;
+        this.targetFpp = fpp;
+        this.words = new AtomicLongArray(Math.toIntExact(bitCount / 64));
+    }
+
+    public void add(String value) {
+        long h1 = hash(value);
+        long h2 = mix(h1 + 0x9E3779B97F4A7C15L) | 1;
+        for (int i = 0; i < hashes; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long current;
+            do {
+                current = words.get(word);
+                if ((current & mask) != 0)
+                    break;
+            } while (!words.compareAndSet(word, current, current | mask));
+        }
+        insertions.increment();
+    }
+
+    public boolean mightContain(String value) {
+        long h1 = hash(value);
+        long h2 = mix(h1 + 0x9E3779B97F4A7C15L) | 1;
+        for (int i = 0; i < hashes; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bitCount);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0)
+                return false;
+        }
+        return true;
+    }
+
+    public long insertions() {
+        return insertions.sum();
+    }
+
+    public long expectedInsertions() {
+        return expectedInsertions;
+    }
+
+    public Stats stats() {
+        long n = insertions.sum();
+        double estimated = Math.pow(1 - Math.exp(-(double) hashes * n / bitCount), hashes);
+        return new Stats(bitCount, hashes, bitCount / 8, n, expectedInsertions, targetFpp, estimated);
+    }
+
+    // FNV-1a 64 bits suivi du mélange final de MurmurHash3
+    private static long hash(String value) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            h ^= value.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return mix(h);
+    }
+
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
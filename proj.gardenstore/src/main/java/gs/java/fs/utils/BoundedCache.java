@@ -0,0 +1,215 @@
+package gs.java.fs.utils;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+
+/**
+ * Cache en mémoire borné en taille (éviction de l'entrée la plus ancienne) et en durée de vie.
+ * Les lectures ne prennent que le verrou partagé, les écritures le verrou exclusif. Créé par lru(), le cache
+ * évince au contraire l'entrée la moins récemment lue : chaque lecture déplace l'entrée et prend donc le verrou
+ * exclusif.
+ * Un chargement (getOrLoad) n'est pas mis en cache si une écriture ou une invalidation a eu lieu pendant
+ * qu'il lisait la source : sa valeur peut être antérieure à cette écriture. Avec un extracteur de version,
+ * une écriture ne remplace jamais une entrée vivante de version supérieure. Une entrée épinglée
+ * (prédicat fourni à la construction) n'est ni évincée par la borne de taille ni considérée comme expirée.
+ */
+public class BoundedCache<K, V> {
+
+    public record Stats(long hits, long misses, long evictions, int size, int maxSize) { }
+
+    private record Entry<V>(V value, long expiresAt) { }
+
+    private final int maxSize;
+    private final long ttlNanos;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final AtomicLong writes = new AtomicLong();
+    private final ToLongFunction<V> version;
+    private final Predicate<V> pinned;
+    private final boolean accessOrder;
+    private final LinkedHashMap<K, Entry<V>> entries;
+
+    public BoundedCache(int maxSize, Duration ttl) {
+        this(maxSize, ttl, null);
+    }
+
+    public BoundedCache(int maxSize, Duration ttl, ToLongFunction<V> version) {
+        this(maxSize, ttl, version, null);
+    }
+
+    public BoundedCache(int maxSize, Duration ttl, ToLongFunction<V> version, Predicate<V> pinned) {
+        this(maxSize, ttl, version, pinned, false);
+    }
+
+    private BoundedCache(int maxSize, Duration ttl, ToLongFunction<V> version, Predicate<V> pinned, boolean accessOrder) {
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl.toNanos();
+        this.version = version;
+        this.pinned = pinned;
+        this.accessOrder = accessOrder;
+        this.entries = new LinkedHashMap<>(16, 0.75f, accessOrder) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                if (size() <= BoundedCache.this.maxSize)
+                    return false;
+                if (!isPinned(eldest.getValue())) {
+                    evictions.increment();
+                    return true;
+                }
+                // la plus ancienne est épinglée : on évince la plus ancienne qui ne l'est pas
+                // (si toutes le sont, la borne est dépassée le temps qu'elles se terminent)
+                for (Iterator<Entry<V>> it = values().iterator(); it.hasNext(); ) {
+                    if (!isPinned(it.next())) {
+                        it.remove();
+                        evictions.increment();
+                        break;
+                    }
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Cache évinçant l'entrée la moins récemment lue, pour les clés dont seules quelques-unes sont très demandées.
+     */
+    public static <K, V> BoundedCache<K, V> lru(int maxSize, Duration ttl) {
+        return new BoundedCache<>(maxSize, ttl, null, null, true);
+    }
+
+    private boolean isPinned(Entry<V> entry) {
+        return pinned != null && pinned.test(entry.value());
+    }
+
+    private boolean isAlive(Entry<V> entry, long now) {
+        return entry.expiresAt() - now >= 0 || isPinned(entry);
+    }
+
+    public V get(K key) {
+        Entry<V> entry;
+        // en ordre d'accès, la lecture réordonne la table
+        Lock readLock = accessOrder ? lock.writeLock() : lock.readLock();
+        readLock.lock();
+        try {
+            entry = entries.get(key);
+        } finally {
+            readLock.unlock();
+        }
+        if (entry == null || !isAlive(entry, System.nanoTime())) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.value();
+    }
+
+    public V getOrLoad(K key, Function<K, V> loader) {
+        V value = get(key);
+        if (value == null) {
+            long stamp = writes.get();
+            value = loader.apply(key);
+            if (value != null)
+                fill(key, value, stamp);
+        }
+        return value;
+    }
+
+    private void fill(K key, V value, long stamp) {
+        lock.writeLock().lock();
+        try {
+            // une écriture concurrente a pu valider une valeur plus récente que celle lue : on ne la masque pas
+            if (writes.get() == stamp)
+                store(key, value);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void put(K key, V value) {
+        lock.writeLock().lock();
+        try {
+            writes.incrementAndGet();
+            store(key, value);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void store(K key, V value) {
+        long now = System.nanoTime();
+        Entry<V> previous = entries.get(key);
+        boolean alive = previous != null && isAlive(previous, now);
+        if (alive && version != null && version.applyAsLong(previous.value()) > version.applyAsLong(value))
+            return;
+        // réinsertion pour que l'entrée rafraîchie passe en fin d'ordre d'éviction
+        entries.remove(key);
+        if (previous != null && !alive)
+            evictions.increment();
+        entries.put(key, new Entry<>(value, now + ttlNanos));
+    }
+
+    /**
+     * Insère la valeur si aucune entrée vivante n'existe pour la clé.
+     * @return la valeur déjà présente, ou null si la nouvelle a été insérée
+     */
+    public V putIfAbsent(K key, V value) {
+        lock.writeLock().lock();
+        try {
+            Entry<V> current = entries.get(key);
+            if (current != null && isAlive(current, System.nanoTime())) {
+                hits.increment();
+                return current.value();
+            }
+            misses.increment();
+            if (current != null) {
+                entries.remove(key);
+                evictions.increment();
+            }
+            entries.put(key, new Entry<>(value, System.nanoTime() + ttlNanos));
+            return null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void invalidate(K key) {
+        lock.writeLock().lock();
+        try {
+            writes.incrementAndGet();
+            entries.remove(key);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            writes.incrementAndGet();
+            entries.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public Stats stats() {
+        lock.readLock().lock();
+        try {
+            return new Stats(hits.sum(), misses.sum(), evictions.sum(), entries.size(), maxSize);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+}
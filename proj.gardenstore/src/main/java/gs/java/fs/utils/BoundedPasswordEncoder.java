@@ -0,0 +1,103 @@
+package gs.java.fs.utils;
+
+import gs.java.fs.exceptions.HashingSaturatedException;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * BCrypt exécuté sur un pool dédié, dimensionné sur les CPU, avec une file bornée : une rafale de connexions
+ * ne consomme jamais plus que ce pool, et au-delà de la file la demande est refusée tout de suite
+ * (HashingSaturatedException, traduite en 503 + Retry-After) au lieu d'affamer les threads Tomcat.
+ * upgradeEncoding() signale les hash d'un autre coût : Spring Security les réencode alors à la connexion
+ * via UserDetailsPasswordService. Un mot de passe enregistré en clair ne correspond jamais
+ * (ClientPasswordMigration les hache au démarrage).
+ */
+public class BoundedPasswordEncoder implements PasswordEncoder, AutoCloseable {
+
+    private static final Pattern BCRYPT = Pattern.compile("\\A\\$2([ayb])?\\$(\\d\\d)\\$[./0-9A-Za-z]{53}");
+
+    public record Stats(int threads, int queued, int queueCapacity, long rejected, int cost) { }
+
+    private final BCryptPasswordEncoder bcrypt;
+    private final int cost;
+    private final int queueCapacity;
+    private final long retryAfterSeconds;
+    private final ThreadPoolExecutor executor;
+    private final LongAdder rejected = new LongAdder();
+
+    public BoundedPasswordEncoder(int cost, int threads, int queueCapacity, long retryAfterSeconds) {
+        this.bcrypt = new BCryptPasswordEncoder(cost);
+        this.cost = cost;
+        this.queueCapacity = queueCapacity;
+        this.retryAfterSeconds = retryAfterSeconds;
+        AtomicInteger count = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), task -> {
+                    Thread thread = new Thread(task, "password-hash-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    public static boolean isHash(String encoded) {
+        return encoded != null && BCRYPT.matcher(encoded).matches();
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return run(() -> bcrypt.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        if (rawPassword == null || encodedPassword == null)
+            return false;
+        if (!isHash(encodedPassword))
+            return false;
+        return run(() -> bcrypt.matches(rawPassword, encodedPassword));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        if (encodedPassword == null)
+            return false;
+        Matcher matcher = BCRYPT.matcher(encodedPassword);
+        return matcher.matches() && Integer.parseInt(matcher.group(2)) != cost;
+    }
+
+    public Stats stats() {
+        return new Stats(executor.getPoolSize(), executor.getQueue().size(), queueCapacity, rejected.sum(), cost);
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    private <T> T run(Callable<T> task) {
+        try {
+            return executor.submit(task).get();
+        } catch (RejectedExecutionException ex) {
+            rejected.increment();
+            throw new HashingSaturatedException("trop de demandes d'authentification, réessayer plus tard", retryAfterSeconds);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException runtime)
+                throw runtime;
+            throw new IllegalStateException(ex.getCause());
+        }
+    }
+}
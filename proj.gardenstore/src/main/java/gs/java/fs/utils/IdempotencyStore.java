@@ -0,0 +1,111 @@
+package gs.java.fs.utils;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Mémorise les réponses des créations portant un en-tête Idempotency-Key.
+ * Une seule exécution par clé : les doublons concurrents attendent la première et reçoivent
+ * la même réponse, sans repasser par la base. Les échecs ne sont pas mémorisés.
+ * Le contenu est comparé par l'empreinte SHA-256 de son JSON canonique (propriétés triées) ;
+ * une exécution en cours n'est jamais évincée par la borne de taille.
+ */
+public class IdempotencyStore {
+
+    public static final String HEADER = "Idempotency-Key";
+
+    private record Stored(ResponseEntity<?> response, byte[] fingerprint) { }
+
+    private final BoundedCache<String, CompletableFuture<Stored>> entries;
+    private final Duration waitTimeout;
+    private final ObjectMapper canonical;
+
+    public IdempotencyStore(int maxSize, Duration ttl, Duration waitTimeout, ObjectMapper objectMapper) {
+        // épinglée tant qu'elle n'est pas terminée : l'évincer laisserait passer une seconde exécution
+        this.entries = new BoundedCache<>(maxSize, ttl, null, future -> !future.isDone());
+        this.waitTimeout = waitTimeout;
+        this.canonical = objectMapper.copy()
+                .configure(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY, true)
+                .configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true);
+    }
+
+    /**
+     * @param scope   espace de la clé (une clé ne vaut que pour un endpoint)
+     * @param request corps de la requête, pour refuser une clé réutilisée avec un autre contenu
+     */
+    public ResponseEntity<?> execute(String scope, String key, Object request, Supplier<ResponseEntity<?>> action) {
+        String id = scope + ':' + key;
+        byte[] fingerprint = fingerprint(request);
+        while (true) {
+            CompletableFuture<Stored> mine = new CompletableFuture<>();
+            CompletableFuture<Stored> running = entries.putIfAbsent(id, mine);
+            if (running == null)
+                return run(id, mine, fingerprint, action);
+            Stored stored;
+            try {
+                stored = running.get(waitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+            } catch (ExecutionException ex) {
+                // la première exécution a échoué et libéré la clé : on retente
+                continue;
+            } catch (TimeoutException ex) {
+                return ResponseEntity.status(HttpStatus.CONFLICT).build();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+            }
+            if (!MessageDigest.isEqual(stored.fingerprint(), fingerprint))
+                return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).build();
+            return ResponseEntity.status(stored.response().getStatusCode())
+                    .headers(stored.response().getHeaders())
+                    .header("Idempotent-Replayed", "true")
+                    .body(stored.response().getBody());
+        }
+    }
+
+    public BoundedCache.Stats stats() {
+        return entries.stats();
+    }
+
+    private byte[] fingerprint(Object request) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(canonical.writeValueAsBytes(request));
+        } catch (JsonProcessingException ex) {
+            throw new UncheckedIOException(ex);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private ResponseEntity<?> run(String id, CompletableFuture<Stored> mine, byte[] fingerprint,
+                                  Supplier<ResponseEntity<?>> action) {
+        ResponseEntity<?> response;
+        try {
+            response = action.get();
+        } catch (RuntimeException | Error ex) {
+            entries.invalidate(id);
+            mine.completeExceptionally(ex);
+            throw ex;
+        }
+        if (response.getStatusCode().is2xxSuccessful()) {
+            mine.complete(new Stored(response, fingerprint));
+        } else {
+            entries.invalidate(id);
+            mine.completeExceptionally(new IllegalStateException(response.getStatusCode().toString()));
+        }
+        return response;
+    }
+}
@@ -1,25 +1,84 @@
 package gs.java.fs.utils;
 
 import gs.java.fs.domain.entities.Client;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
+import javax.crypto.SecretKey;
 import java.nio.charset.StandardCharsets;
+import java.time.Instant;
 import java.util.Date;
+import java.util.List;
 
 @Component
     public class JwtTokenUtil {
         private static final long EXPIRE_DURATION = 24 * 60 * 60 * 1000; // 24 hour
+        private static final String ISSUER = "CodeJava";
 
-       final byte[] secret = "C#sLuAwsf/X?yjVQ*UZ+Ty&f>1<RHo-Vd4DvQX)QVe@#+G?AOQ~ZjQ~q'0JAa(nIQ}_Xk0cgM'>!$W`>MBRc^{o<cL'OGnh@<p}WziAK=WZ\"b='r)uQ+[!ZPywM&RR".getBytes(StandardCharsets.UTF_8);
+        // HS512 exige une clé d'au moins 512 bits
+        private static final int MIN_SECRET_BYTES = 64;
 
+        private final SecretKey key;
+        private final JwtParser parser;
+
+        public JwtTokenUtil(@Value("${gardenstore.jwt.secret:}") String secret) {
+            // pas de secret par défaut : un secret connu permettrait à n'importe qui de forger des jetons
+            if (secret == null || secret.isBlank())
+                throw new IllegalStateException("gardenstore.jwt.secret (GARDENSTORE_JWT_SECRET) doit être renseigné");
+            byte[] bytes = secret.getBytes(StandardCharsets.UTF_8);
+            if (bytes.length < MIN_SECRET_BYTES)
+                throw new IllegalStateException("gardenstore.jwt.secret doit faire au moins " + MIN_SECRET_BYTES + " octets");
+            this.key = Keys.hmacShaKeyFor(bytes);
+            this.parser = Jwts.parserBuilder()
+                    .setSigningKey(key)
+                    .requireIssuer(ISSUER)
+                    .build();
+        }
+
+        /**
+         * Jeton signé (HS512) : le sujet est le mail, les claims portent l'id et les rôles.
+         * Aucun secret (mot de passe) n'y figure.
+         */
         public String generateAccessToken(Client client) {
+            return generateAccessToken(client.getId(), client);
+        }
+
+        public String generateAccessToken(Long id, UserDetails user) {
             return Jwts.builder()
-                    .setSubject(String.format("%s,%s", client.getPassword(), client.getMail()))
-                    .setIssuer("CodeJava")
+                    .setSubject(user.getUsername())
+                    .claim("uid", id)
+                    .claim("roles", user.getAuthorities().stream().map(GrantedAuthority::getAuthority).toList())
+                    .setIssuer(ISSUER)
                     .setIssuedAt(new Date())
                     .setExpiration(new Date(System.currentTimeMillis() + EXPIRE_DURATION))
+                    .signWith(key, SignatureAlgorithm.HS512)
                     .compact();
 
         }
+
+        /**
+         * Vérifie signature, émetteur et expiration.
+         * @throws JwtException si le jeton est invalide
+         */
+        public JwtPrincipal parse(String token) {
+            Claims claims = parser.parseClaimsJws(token).getBody();
+            List<?> roles = claims.get("roles", List.class);
+            Number uid = claims.get("uid", Number.class);
+            return new JwtPrincipal(
+                    uid == null ? null : uid.longValue(),
+                    claims.getSubject(),
+                    roles == null ? List.of() : roles.stream().map(String::valueOf).toList(),
+                    claims.getExpiration().toInstant()
+            );
+        }
+
+        public record JwtPrincipal(Long id, String mail, List<String> roles, Instant expiresAt) { }
     }
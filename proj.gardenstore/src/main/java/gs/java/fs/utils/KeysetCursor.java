@@ -0,0 +1,46 @@
+package gs.java.fs.utils;
+
+import gs.java.fs.exceptions.InvalidCursorException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.function.Function;
+
+/**
+ * Curseur opaque de pagination par clé (keyset) : valeur de tri + id de la dernière ligne renvoyée.
+ * Un curseur illisible ou altéré est refusé dès le décodage (400), jamais à l'exécution de la requête.
+ */
+public record KeysetCursor(String key, long id) {
+
+    public static final KeysetCursor START = new KeysetCursor(null, 0L);
+
+    public static String encode(Object key, Long id) {
+        String raw = (key == null ? "" : key.toString()) + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static KeysetCursor decode(String cursor) {
+        return decode(cursor, key -> key);
+    }
+
+    /**
+     * @param keyParser conversion de la clé de tri attendue : son échec rend le curseur invalide
+     */
+    public static KeysetCursor decode(String cursor, Function<String, ?> keyParser) {
+        if (cursor == null || cursor.isBlank())
+            return START;
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int sep = raw.lastIndexOf('|');
+            String key = raw.substring(0, sep);
+            long id = Long.parseLong(raw.substring(sep + 1));
+            if (id < 0)
+                throw new InvalidCursorException("curseur de pagination invalide");
+            if (!key.isEmpty())
+                keyParser.apply(key);
+            return new KeysetCursor(key.isEmpty() ? null : key, id);
+        } catch (RuntimeException e) {
+            throw new InvalidCursorException("curseur de pagination invalide");
+        }
+    }
+}
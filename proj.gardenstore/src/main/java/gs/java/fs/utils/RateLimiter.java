@@ -0,0 +1,77 @@
+package gs.java.fs.utils;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Seau à jetons par clé, sans verrou : chaque seau tient dans un seul AtomicLong, l'instant théorique
+ * où il sera de nouveau plein (forme « virtual scheduling » du seau à jetons). Consommer un jeton
+ * est un compareAndSet.
+ * Un seau plein se comporte exactement comme un seau absent : l'éviction des seaux inactifs ne perd
+ * donc rien. Elle ne se fait que par evictIdle, appelée périodiquement, jamais sur le chemin d'une requête :
+ * une rafale de clés toutes nouvelles ne déclenche pas un parcours de la table à chaque demande. Tant que
+ * la table est pleine, les nouvelles clés sont refusées.
+ */
+public class RateLimiter {
+
+    public record Stats(long allowed, long rejected, long rejectedFull, int keys, int maxKeys) { }
+
+    private final long intervalNanos;
+    private final long burstNanos;
+    private final int maxKeys;
+    private final ConcurrentHashMap<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final LongAdder allowed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder rejectedFull = new LongAdder();
+
+    /**
+     * @param capacity jetons disponibles en rafale
+     * @param period   durée pour regagner {@code capacity} jetons
+     */
+    public RateLimiter(int capacity, Duration period, int maxKeys) {
+        this.intervalNanos = period.toNanos() / capacity;
+        this.burstNanos = intervalNanos * capacity;
+        this.maxKeys = maxKeys;
+    }
+
+    /**
+     * @return 0 si la demande est acceptée, sinon le délai d'attente conseillé en nanosecondes
+     */
+    public long tryAcquire(String key) {
+        long now = System.nanoTime();
+        AtomicLong bucket = buckets.get(key);
+        if (bucket == null) {
+            if (buckets.size() >= maxKeys) {
+                rejectedFull.increment();
+                return intervalNanos;
+            }
+            bucket = buckets.computeIfAbsent(key, k -> new AtomicLong(now));
+        }
+        while (true) {
+            long full = bucket.get();
+            long next = Math.max(full, now) + intervalNanos;
+            if (next - now > burstNanos) {
+                rejected.increment();
+                return next - now - burstNanos;
+            }
+            if (bucket.compareAndSet(full, next)) {
+                allowed.increment();
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Retire les seaux redevenus pleins
+     */
+    public void evictIdle() {
+        long now = System.nanoTime();
+        buckets.entrySet().removeIf(entry -> entry.getValue().get() - now <= 0);
+    }
+
+    public Stats stats() {
+        return new Stats(allowed.sum(), rejected.sum(), rejectedFull.sum(), buckets.size(), maxKeys);
+    }
+}
@@ -0,0 +1,54 @@
+package gs.java.fs.utils;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Versions connues des entités (id -> @Version) pour répondre aux requêtes conditionnelles
+ * sans interroger la base. La génération change à chaque écriture : elle sert d'ETag aux listes,
+ * préfixée par l'instant de démarrage pour ne jamais resservir un ETag d'une exécution précédente.
+ * Une version connue ne recule jamais : une lecture concurrente d'une écriture ne peut pas réinscrire
+ * l'ancienne version, et une entité supprimée garde une marque qui empêche de la réinscrire.
+ */
+public class VersionTracker {
+
+    private static final long REMOVED = Long.MAX_VALUE;
+
+    private final long epoch = System.currentTimeMillis();
+    private final AtomicLong generation = new AtomicLong();
+    private final ConcurrentHashMap<Long, Long> versions = new ConcurrentHashMap<>();
+
+    public static String etag(Long id, Long version) {
+        return "\"" + id + "-" + version + "\"";
+    }
+
+    /**
+     * @return l'ETag de l'entité, ou null si sa version n'est pas connue
+     */
+    public String etag(Long id) {
+        Long version = versions.get(id);
+        return version == null || version == REMOVED ? null : etag(id, version);
+    }
+
+    public String collectionEtag() {
+        return "\"" + epoch + "-" + generation.get() + "\"";
+    }
+
+    public void record(Long id, Long version) {
+        if (version != null)
+            versions.merge(id, version, Math::max);
+    }
+
+    public void changed(Long id, Long version) {
+        if (version == null)
+            versions.computeIfPresent(id, (key, known) -> known == REMOVED ? known : null);
+        else
+            versions.merge(id, version, Math::max);
+        generation.incrementAndGet();
+    }
+
+    public void removed(Long id) {
+        versions.put(id, REMOVED);
+        generation.incrementAndGet();
+    }
+}
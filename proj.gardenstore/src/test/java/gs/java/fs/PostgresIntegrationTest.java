@@ -0,0 +1,33 @@
+package gs.java.fs;
+
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+/**
+ * Base des tests d'intégration : l'application complète sur un PostgreSQL jetable, le SQL des services
+ * (RETURNING, FOR UPDATE, CTE) n'ayant pas d'équivalent fidèle en base embarquée.
+ * Le conteneur est partagé par toutes les classes de test pour que le contexte Spring reste en cache ;
+ * sans Docker, ces tests sont ignorés.
+ */
+@SpringBootTest
+@Testcontainers(disabledWithoutDocker = true)
+public abstract class PostgresIntegrationTest {
+
+    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        POSTGRES.start();
+        registry.add("spring.datasource.url", () -> POSTGRES.getJdbcUrl() + "&reWriteBatchedInserts=true");
+        registry.add("spring.datasource.username", POSTGRES::getUsername);
+        registry.add("spring.datasource.password", POSTGRES::getPassword);
+        registry.add("spring.jpa.show-sql", () -> "false");
+        // compteurs de requêtes Hibernate, lus par les tests de plan de chargement
+        registry.add("spring.jpa.properties.hibernate.generate_statistics", () -> "true");
+        // l'application refuse de démarrer sans secret de signature des jetons
+        registry.add("gardenstore.jwt.secret", () -> "secret-de-test-uniquement-0123456789-0123456789-0123456789-0123456789");
+    }
+}
@@ -0,0 +1,108 @@
+package gs.java.fs.api.controller;
+
+import gs.java.fs.PostgresIntegrationTest;
+import gs.java.fs.bll.LivreurService;
+import gs.java.fs.dal.CommandeRepository;
+import gs.java.fs.domain.entities.Commande;
+import gs.java.fs.domain.entities.Livreur;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Nombre exact d'instructions SQL par endpoint de lecture : un N+1 réintroduit (association EAGER,
+ * collection parcourue hors plan de chargement) fait échouer le build.
+ */
+@AutoConfigureMockMvc
+class FetchPlanStatementCountTest extends PostgresIntegrationTest {
+
+    private static final int LIVREURS = 3;
+    private static final int COMMANDES_PAR_LIVREUR = 5;
+
+    @Autowired
+    private MockMvc mvc;
+    @Autowired
+    private LivreurService livreurService;
+    @Autowired
+    private CommandeRepository commandeRepository;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private final List<Long> livreurIds = new ArrayList<>();
+    private Long commandeId;
+
+    @BeforeEach
+    void seed() {
+        livreurIds.clear();
+        for (int l = 0; l < LIVREURS; l++) {
+            Livreur livreur = new Livreur();
+            livreur.setNom("Martin");
+            livreur.setPrénom("Léa");
+            livreur.setNomContact("Martin");
+            livreur.setSociete("Vélo Express");
+            livreur = livreurService.add(livreur);
+            livreurIds.add(livreur.getId());
+            for (int c = 0; c < COMMANDES_PAR_LIVREUR; c++) {
+                Commande commande = new Commande();
+                commande.setMontant(1000 + c);
+                commande.setDateCommande(LocalDate.of(2024, 5, 1 + c));
+                commande.setQuantite(1);
+                commande.setNCommande(c);
+                commande.setDeliveredBy(livreur);
+                commandeId = commandeRepository.save(commande).getId();
+            }
+        }
+    }
+
+    private long statements(RequestBuilder request, int expectedStatus) throws Exception {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        mvc.perform(request).andExpect(status().is(expectedStatus));
+        return statistics.getPrepareStatementCount();
+    }
+
+    @Test
+    void commandeListingsRunOneStatement() throws Exception {
+        assertThat(statements(get("/commande"), 200)).isEqualTo(1);
+        assertThat(statements(get("/commande").param("limit", "10"), 200)).isEqualTo(1);
+        assertThat(statements(get("/commande/{id}", commandeId), 200)).isEqualTo(1);
+    }
+
+    @Test
+    void livreurListingsRunOneStatement() throws Exception {
+        assertThat(statements(get("/livreur"), 200)).isEqualTo(1);
+        assertThat(statements(get("/livreur").param("limit", "10"), 200)).isEqualTo(1);
+        assertThat(statements(get("/livreur/{id}", livreurIds.get(0)), 200)).isEqualTo(1);
+    }
+
+    @Test
+    void livreurCommandesAreJoinFetchedInOneStatement() throws Exception {
+        for (Long livreurId : livreurIds)
+            assertThat(statements(get("/livreur/{id}/commandes", livreurId), 200)).isEqualTo(1);
+    }
+
+    @Test
+    void revalidationRunsNoStatement() throws Exception {
+        Long livreurId = livreurIds.get(0);
+        String etag = mvc.perform(get("/livreur/{id}", livreurId)).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        assertThat(statements(get("/livreur/{id}", livreurId).header(HttpHeaders.IF_NONE_MATCH, etag), 304)).isZero();
+        String collectionEtag = mvc.perform(get("/livreur")).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(statements(get("/livreur").header(HttpHeaders.IF_NONE_MATCH, collectionEtag), 304)).isZero();
+    }
+}
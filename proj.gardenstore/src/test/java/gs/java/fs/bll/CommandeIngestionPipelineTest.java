@@ -0,0 +1,108 @@
+package gs.java.fs.bll;
+
+import gs.java.fs.PostgresIntegrationTest;
+import gs.java.fs.api.models.form.CommandeForm;
+import gs.java.fs.domain.entities.Livreur;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CommandeIngestionPipelineTest extends PostgresIntegrationTest {
+
+    @Autowired
+    private CommandeService commandeService;
+    @Autowired
+    private LivreurService livreurService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private static CommandeForm form(Integer nCommande) {
+        return new CommandeForm(null, 1, nCommande, LocalDate.of(2024, 6, 1), 1990, null, 85000, null);
+    }
+
+    private void livreur() {
+        Livreur livreur = new Livreur();
+        livreur.setNom("Martin");
+        livreur.setPrénom("Léa");
+        livreur.setNomContact("Martin");
+        livreur.setSociete("Vélo Express");
+        livreurService.add(livreur);
+    }
+
+    private int charge() {
+        return livreurService.charges().stream().mapToInt(LivreurAssignment.Charge::commandes).sum();
+    }
+
+    @Test
+    void replayAfterARejectedBatchKeepsLivreurLoadsInStep() throws Exception {
+        livreur();
+        CommandeIngestionPipeline pipeline = new CommandeIngestionPipeline(commandeService, false, 100, 500, Duration.ofMinutes(5));
+        int before = charge();
+
+        UUID premiere = pipeline.submit(form(1)).orElseThrow();
+        // n_commande manquant : le lot entier est annulé à l'écriture, après l'affectation des livreurs
+        UUID fautive = pipeline.submit(form(null)).orElseThrow();
+        UUID derniere = pipeline.submit(form(3)).orElseThrow();
+        pipeline.drainOnce(0);
+
+        assertThat(pipeline.status(premiere)).get().extracting(CommandeIngestionPipeline.Status::state)
+                .isEqualTo(CommandeIngestionPipeline.State.ENREGISTREE);
+        assertThat(pipeline.status(fautive)).get().extracting(CommandeIngestionPipeline.Status::state)
+                .isEqualTo(CommandeIngestionPipeline.State.ECHEC);
+        assertThat(pipeline.status(derniere)).get().extracting(CommandeIngestionPipeline.Status::state)
+                .isEqualTo(CommandeIngestionPipeline.State.ENREGISTREE);
+        // les deux commandes rejouées ont été réaffectées et comptées une seule fois
+        assertThat(charge()).isEqualTo(before + 2);
+        for (UUID trackingId : List.of(premiere, derniere)) {
+            Long commandeId = pipeline.status(trackingId).orElseThrow().commandeId();
+            assertThat(jdbcTemplate.queryForObject("select delivered_by_livreur_id from commande where commande_id = ?",
+                    Long.class, commandeId)).isNotNull();
+        }
+        pipeline.stop();
+    }
+
+    @Test
+    @Tag("benchmark")
+    void ordersPerSecondAgainstTheSynchronousPath() throws Exception {
+        livreur();
+        int threads = Runtime.getRuntime().availableProcessors() * 2;
+        int commandes = 20_000;
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        long start = System.nanoTime();
+        for (int i = 0; i < commandes; i++) {
+            int n = i;
+            pool.submit(() -> commandeService.register(form(n).toEntity()));
+        }
+        pool.shutdown();
+        assertThat(pool.awaitTermination(10, TimeUnit.MINUTES)).isTrue();
+        double synchrone = commandes / ((System.nanoTime() - start) / 1e9);
+
+        CommandeIngestionPipeline pipeline = new CommandeIngestionPipeline(commandeService, true, commandes, 500, Duration.ofMinutes(5));
+        List<UUID> trackingIds = new ArrayList<>(commandes);
+        start = System.nanoTime();
+        for (int i = 0; i < commandes; i++)
+            trackingIds.add(pipeline.submit(form(i)).orElseThrow());
+        for (UUID trackingId : trackingIds) {
+            while (pipeline.status(trackingId).orElseThrow().state() == CommandeIngestionPipeline.State.EN_ATTENTE)
+                Thread.sleep(1);
+        }
+        double parLots = commandes / ((System.nanoTime() - start) / 1e9);
+        pipeline.stop();
+
+        System.out.printf("%d commandes : synchrone (%d threads) %.0f commandes/s, file + lots de 500 %.0f commandes/s%n",
+                commandes, threads, synchrone, parLots);
+    }
+}
@@ -0,0 +1,109 @@
+package gs.java.fs.bll;
+
+import gs.java.fs.dal.ProduitRepository;
+import gs.java.fs.domain.entities.Produit;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ProduitSearchIndexTest {
+
+    private static final String[] NOMS = {
+            "sécateur", "râteau", "bêche", "arrosoir", "tondeuse", "chaise", "table", "parasol",
+            "rosier", "olivier", "lavande", "hortensia", "gants", "tuyau", "pot", "jardinière"
+    };
+    private static final String[] AVIS = {
+            "très solide", "léger et maniable", "livré rapidement", "qualité décevante", "parfait pour l'été",
+            "résiste au gel", "facile à monter", "bon rapport qualité prix", "couleur fidèle", "un peu cher"
+    };
+
+    private final ProduitSearchIndex index = new ProduitSearchIndex(mock(ProduitRepository.class));
+
+    private static Produit produit(long id, String nom, String avis) {
+        Produit produit = new Produit();
+        produit.setId(id);
+        produit.setNom(nom);
+        produit.setAvis(avis);
+        return produit;
+    }
+
+    @Test
+    void foldsAccentsAndRanksNameAboveReview() {
+        index.index(produit(1, "Gants de jardin", "parfait pour tailler avec le sécateur"));
+        index.index(produit(2, "Sécateur à lame franche", "coupe nette"));
+        index.index(produit(3, "Râteau", "solide"));
+
+        assertThat(index.search("secateur", 10)).containsExactly(2L, 1L);
+        assertThat(index.search("RATEAU", 10)).containsExactly(3L);
+    }
+
+    @Test
+    void reindexReplacesAndUnindexRemovesTerms() {
+        index.index(produit(1, "Bêche", "robuste"));
+        index.index(produit(1, "Pelle", "robuste"));
+        assertThat(index.search("beche", 10)).isEmpty();
+        assertThat(index.search("pelle", 10)).containsExactly(1L);
+
+        index.unindex(1L);
+        assertThat(index.search("pelle", 10)).isEmpty();
+    }
+
+    @Test
+    void rebuildServesSearchesAndKeepsChangesMadeWhileLoading() {
+        ProduitRepository repository = mock(ProduitRepository.class);
+        ProduitSearchIndex rebuilt = new ProduitSearchIndex(repository);
+        rebuilt.index(produit(1, "Bêche", "robuste"));
+        rebuilt.index(produit(2, "Tuyau", "souple"));
+        when(repository.findPageAfterId(anyLong(), any())).thenAnswer(invocation -> {
+            // lecture en base en cours : l'ancien index répond toujours, et reçoit des modifications
+            assertThat(rebuilt.search("beche", 10)).containsExactly(1L);
+            rebuilt.index(produit(3, "Râteau", "solide"));
+            rebuilt.unindex(2L);
+            return List.of(produit(1, "Bêche", "robuste"), produit(2, "Tuyau", "souple"));
+        });
+
+        rebuilt.rebuild();
+
+        assertThat(rebuilt.search("beche", 10)).containsExactly(1L);
+        assertThat(rebuilt.search("rateau", 10)).containsExactly(3L);
+        assertThat(rebuilt.search("tuyau", 10)).isEmpty();
+    }
+
+    @Test
+    @Tag("benchmark")
+    void searchOverHalfAMillionProducts() {
+        Random random = new Random(42);
+        int produits = 500_000;
+        for (long id = 1; id <= produits; id++) {
+            String nom = NOMS[random.nextInt(NOMS.length)] + " " + NOMS[random.nextInt(NOMS.length)] + " " + id;
+            index.index(produit(id, nom, AVIS[random.nextInt(AVIS.length)]));
+        }
+        List<String> queries = List.of("secateur", "table jardin", "resiste gel", "olivier leger", "qualite prix");
+        for (int i = 0; i < 20; i++)
+            queries.forEach(query -> index.search(query, 20));
+
+        int rounds = 50;
+        long[] nanos = new long[rounds * queries.size()];
+        int n = 0;
+        for (int i = 0; i < rounds; i++) {
+            for (String query : queries) {
+                long start = System.nanoTime();
+                assertThat(index.search(query, 20)).isNotEmpty();
+                nanos[n++] = System.nanoTime() - start;
+            }
+        }
+        Arrays.sort(nanos);
+        double p50 = nanos[nanos.length / 2] / 1e6;
+        double p99 = nanos[(int) (nanos.length * 0.99)] / 1e6;
+        System.out.printf("recherche sur %d produits : p50 %.2f ms, p99 %.2f ms%n", produits, p50, p99);
+    }
+}
@@ -0,0 +1,60 @@
+package gs.java.fs.bll;
+
+import gs.java.fs.dal.CommandeRepository;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SalesRollupTest {
+
+    private final CommandeRepository commandeRepository = mock(CommandeRepository.class);
+    private final CommandeArchive commandeArchive = mock(CommandeArchive.class);
+    private final SalesRollup rollup = new SalesRollup(commandeRepository, commandeArchive);
+
+    private static SalesRollup.Line line(LocalDate date, long montant, Long livreurId) {
+        return new SalesRollup.Line(date, 1, montant, 2, livreurId);
+    }
+
+    @Test
+    void livreurTotalsFollowTheRequestedRange() {
+        rollup.onSaved(null, line(LocalDate.of(2024, 1, 10), 100, 7L));
+        rollup.onSaved(null, line(LocalDate.of(2024, 2, 10), 250, 7L));
+
+        assertThat(rollup.stats(null, null).parLivreur().get(7L))
+                .isEqualTo(new SalesRollup.Totals(2, 350, 4));
+        assertThat(rollup.stats(LocalDate.of(2024, 2, 1), LocalDate.of(2024, 2, 28)).parLivreur().get(7L))
+                .isEqualTo(new SalesRollup.Totals(1, 250, 2));
+        assertThat(rollup.stats(LocalDate.of(2024, 3, 1), null).parLivreur()).isEmpty();
+    }
+
+    @Test
+    void updateMovesTheOrderBetweenBuckets() {
+        SalesRollup.Line before = line(LocalDate.of(2024, 1, 10), 100, 7L);
+        SalesRollup.Line after = line(LocalDate.of(2024, 1, 11), 120, 8L);
+        rollup.onSaved(null, before);
+        rollup.onSaved(before, after);
+
+        SalesRollup.Stats stats = rollup.stats(null, null);
+        assertThat(stats.parJour()).containsOnlyKeys(LocalDate.of(2024, 1, 11));
+        assertThat(stats.parLivreur()).containsOnlyKeys(8L);
+    }
+
+    @Test
+    void rebuildReplacesTheTotals() {
+        rollup.onSaved(null, line(LocalDate.of(2024, 1, 10), 100, 7L));
+        when(commandeRepository.aggregateByDateAndLivreur())
+                .thenReturn(List.<Object[]>of(new Object[]{LocalDate.of(2024, 1, 12), 9L, 3L, 300L, 6L}));
+        when(commandeArchive.totals()).thenReturn(List.of(line(LocalDate.of(2023, 1, 5), 50, 9L)));
+
+        rollup.rebuild();
+
+        SalesRollup.Stats stats = rollup.stats(null, null);
+        assertThat(stats.parJour()).containsOnlyKeys(LocalDate.of(2023, 1, 5), LocalDate.of(2024, 1, 12));
+        assertThat(stats.parLivreur().get(9L)).isEqualTo(new SalesRollup.Totals(4, 350, 8));
+    }
+}
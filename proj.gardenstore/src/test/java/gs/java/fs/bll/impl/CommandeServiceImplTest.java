@@ -0,0 +1,127 @@
+package gs.java.fs.bll.impl;
+
+import gs.java.fs.PostgresIntegrationTest;
+import gs.java.fs.api.models.form.CommandeForm;
+import gs.java.fs.api.models.form.CommandePatchForm;
+import gs.java.fs.api.models.form.LigneCommandeForm;
+import gs.java.fs.bll.CommandeService;
+import gs.java.fs.bll.ProduitService;
+import gs.java.fs.domain.entities.Commande;
+import gs.java.fs.domain.entities.Description;
+import gs.java.fs.domain.entities.Produit;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CommandeServiceImplTest extends PostgresIntegrationTest {
+
+    @Autowired
+    private CommandeService commandeService;
+    @Autowired
+    private ProduitService produitService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Long produit(int prix, int stock) {
+        Produit produit = new Produit();
+        produit.setNom("Arrosoir " + UUID.randomUUID().toString().substring(0, 8));
+        produit.setPrixDeVente(prix);
+        produit.setStock(stock);
+        produit.setCategorie(Description.OUTILLAGE);
+        produit.setAvis("10 litres");
+        produit.setReference(7);
+        return produitService.add(produit).getId();
+    }
+
+    private static CommandeForm panier(List<LigneCommandeForm> lignes) {
+        return new CommandeForm(null, null, 1, LocalDate.of(2024, 6, 1), null, null, 85000, lignes);
+    }
+
+    private int stock(Long produitId) {
+        return jdbcTemplate.queryForObject("select stock from produit where id = ?", Integer.class, produitId);
+    }
+
+    @Test
+    void totalsOfAnOrderWithLinesComeFromItsLines() {
+        Long produitId = produit(500, 10);
+        Long commandeId = commandeService.register(panier(List.of(new LigneCommandeForm(produitId, 3))).toEntity()).getId();
+
+        assertThatThrownBy(() -> commandeService.patch(commandeId, new CommandePatchForm(1, null, null, null)))
+                .hasMessageContaining("calculés à partir des lignes");
+        assertThatThrownBy(() -> commandeService.patch(commandeId, new CommandePatchForm(null, null, 99, null)))
+                .hasMessageContaining("calculés à partir des lignes");
+
+        Commande commande = commandeService.getOne(commandeId);
+        commande.setMontant(1);
+        assertThatThrownBy(() -> commandeService.update(commandeId, commande))
+                .hasMessageContaining("calculés à partir des lignes");
+
+        // les valeurs déjà calculées (aller-retour GET puis PUT) et les autres champs restent acceptés
+        assertThat(commandeService.patch(commandeId, new CommandePatchForm(1500, null, 3, 8)).nCommande()).isEqualTo(8);
+        assertThat(commandeService.getOneDTO(commandeId).montant()).isEqualTo(1500);
+    }
+
+    @Test
+    @Tag("benchmark")
+    void overlappingBasketsNeverDeadlock() throws Exception {
+        int produits = 20;
+        int stockInitial = 1_000_000;
+        List<Long> catalogue = new ArrayList<>();
+        for (int p = 0; p < produits; p++)
+            catalogue.add(produit(100 + p, stockInitial));
+
+        int threads = Runtime.getRuntime().availableProcessors() * 2;
+        Duration duration = Duration.ofSeconds(10);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        AtomicBoolean running = new AtomicBoolean(true);
+        LongAdder commandes = new LongAdder();
+        LongAdder unites = new LongAdder();
+        for (int t = 0; t < threads; t++) {
+            pool.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                List<Long> melange = new ArrayList<>(catalogue);
+                while (running.get()) {
+                    // 2 à 6 produits pris dans un petit catalogue, dans un ordre quelconque : les paniers se chevauchent
+                    Collections.shuffle(melange, random);
+                    List<LigneCommandeForm> lignes = new ArrayList<>();
+                    int quantite = 0;
+                    for (Long produitId : melange.subList(0, random.nextInt(2, 7))) {
+                        int q = random.nextInt(1, 4);
+                        lignes.add(new LigneCommandeForm(produitId, q));
+                        quantite += q;
+                    }
+                    commandeService.register(panier(lignes).toEntity());
+                    commandes.increment();
+                    unites.add(quantite);
+                }
+                return null;
+            });
+        }
+        Thread.sleep(duration.toMillis());
+        running.set(false);
+        pool.shutdown();
+        assertThat(pool.awaitTermination(1, TimeUnit.MINUTES)).isTrue();
+
+        long restant = catalogue.stream().mapToLong(this::stock).sum();
+        assertThat((long) produits * stockInitial - restant).isEqualTo(unites.sum());
+        System.out.printf("%d threads, paniers chevauchants sur %d produits : %.0f commandes/s%n",
+                threads, produits, commandes.sum() / (double) duration.toSeconds());
+    }
+}
@@ -0,0 +1,58 @@
+package gs.java.fs.bll.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import gs.java.fs.PostgresIntegrationTest;
+import gs.java.fs.api.models.dtos.ProduitDTO;
+import gs.java.fs.bll.ExportService;
+import gs.java.fs.bll.ProduitService;
+import gs.java.fs.domain.entities.Description;
+import gs.java.fs.domain.entities.Produit;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ExportServiceImplTest extends PostgresIntegrationTest {
+
+    @Autowired
+    private ExportService exportService;
+    @Autowired
+    private ProduitService produitService;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void everyExportedLineIsOneCompleteRecord() throws Exception {
+        // lignes de longueurs variables, bien au-delà du tampon du générateur JSON
+        for (int i = 0; i < 3000; i++) {
+            Produit produit = new Produit();
+            produit.setNom("Jardinière " + i);
+            produit.setPrixDeVente(100 + i);
+            produit.setStock(i);
+            produit.setCategorie(Description.OUTILLAGE);
+            produit.setAvis("é".repeat(i % 240 + 1));
+            produit.setReference(i);
+            produitService.add(produit);
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exportService.exportProduits(out);
+        String ndjson = out.toString(StandardCharsets.UTF_8);
+
+        assertThat(ndjson).endsWith("\n");
+        String[] lines = ndjson.split("\n");
+        Set<Long> ids = new HashSet<>();
+        for (String line : lines)
+            ids.add(objectMapper.readValue(line, ProduitDTO.class).id());
+        assertThat(lines).hasSize(jdbcTemplate.queryForObject("select count(*) from produit", Integer.class));
+        assertThat(ids).hasSize(lines.length);
+    }
+}
@@ -0,0 +1,159 @@
+package gs.java.fs.bll.impl;
+
+import gs.java.fs.PostgresIntegrationTest;
+import gs.java.fs.bll.ProduitService;
+import gs.java.fs.bll.StockReservation;
+import gs.java.fs.domain.entities.Description;
+import gs.java.fs.domain.entities.Produit;
+import gs.java.fs.exceptions.StockInsuffisantException;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StockReservationServiceImplTest extends PostgresIntegrationTest {
+
+    @Autowired
+    private StockReservationServiceImpl reservations;
+    @Autowired
+    private ProduitService produitService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Long produit(int stock) {
+        Produit produit = new Produit();
+        produit.setNom("Sécateur " + UUID.randomUUID().toString().substring(0, 8));
+        produit.setPrixDeVente(1990);
+        produit.setStock(stock);
+        produit.setCategorie(Description.OUTILLAGE);
+        produit.setAvis("coupe nette");
+        produit.setReference(42);
+        return produitService.add(produit).getId();
+    }
+
+    private int stock(Long produitId) {
+        return jdbcTemplate.queryForObject("select stock from produit where id = ?", Integer.class, produitId);
+    }
+
+    private int reservationsEnCours(Long produitId) {
+        return jdbcTemplate.queryForObject("select count(*) from reservation_stock where produit_id = ?", Integer.class, produitId);
+    }
+
+    @Test
+    void neverOversellsAHotProductUnderContention() throws Exception {
+        Long produitId = produit(100);
+        int threads = 32;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        Queue<StockReservation> served = new ConcurrentLinkedQueue<>();
+        AtomicInteger refused = new AtomicInteger();
+        for (int t = 0; t < threads; t++) {
+            pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < 10; i++) {
+                    try {
+                        served.add(reservations.reserve(produitId, 1, Duration.ofMinutes(5)));
+                    } catch (StockInsuffisantException ex) {
+                        refused.incrementAndGet();
+                    }
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        assertThat(pool.awaitTermination(1, TimeUnit.MINUTES)).isTrue();
+
+        assertThat(served).hasSize(100);
+        assertThat(refused.get()).isEqualTo(threads * 10 - 100);
+        assertThat(stock(produitId)).isZero();
+        assertThat(reservationsEnCours(produitId)).isEqualTo(100);
+
+        List<StockReservation> toRelease = new ArrayList<>(served).subList(0, 40);
+        toRelease.forEach(reservation -> reservations.release(reservation.id()));
+        assertThat(stock(produitId)).isEqualTo(40);
+        assertThat(reservationsEnCours(produitId)).isEqualTo(60);
+        // le compteur en mémoire a récupéré les unités rendues
+        assertThat(reservations.reserve(produitId, 40, Duration.ofMinutes(5))).isNotNull();
+        assertThat(stock(produitId)).isZero();
+    }
+
+    @Test
+    void confirmedReservationCannotBeReleased() {
+        Long produitId = produit(5);
+        StockReservation reservation = reservations.reserve(produitId, 2, Duration.ofMinutes(5));
+
+        reservations.confirm(reservation.id());
+
+        assertThatThrownBy(() -> reservations.release(reservation.id())).hasMessageContaining("aucune réservation");
+        assertThat(stock(produitId)).isEqualTo(3);
+        assertThat(reservationsEnCours(produitId)).isZero();
+    }
+
+    @Test
+    void expiredReservationsAreSweptBackIntoStock() {
+        Long produitId = produit(5);
+        StockReservation reservation = reservations.reserve(produitId, 3, Duration.ZERO);
+
+        assertThatThrownBy(() -> reservations.confirm(reservation.id())).hasMessageContaining("expiré");
+        reservations.releaseExpired();
+
+        assertThat(stock(produitId)).isEqualTo(5);
+        assertThat(reservationsEnCours(produitId)).isZero();
+    }
+
+    @Test
+    @Tag("benchmark")
+    void reservationThroughputOnASingleHotProduct() throws Exception {
+        Long produitId = produit(Integer.MAX_VALUE / 2);
+        int threads = Runtime.getRuntime().availableProcessors() * 2;
+        Duration duration = Duration.ofSeconds(10);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        AtomicBoolean running = new AtomicBoolean(true);
+        LongAdder done = new LongAdder();
+        for (int t = 0; t < threads; t++) {
+            pool.submit(() -> {
+                while (running.get()) {
+                    reservations.reserve(produitId, 1, Duration.ofMinutes(5));
+                    done.increment();
+                }
+                return null;
+            });
+        }
+        Thread.sleep(duration.toMillis());
+        running.set(false);
+        pool.shutdown();
+        assertThat(pool.awaitTermination(1, TimeUnit.MINUTES)).isTrue();
+        System.out.printf("%d threads, un seul produit : %.0f réservations/s%n",
+                threads, done.sum() / (double) duration.toSeconds());
+
+        // produit épuisé : les refus sont servis par le compteur, sans aller en base
+        Long epuise = produit(0);
+        long start = System.nanoTime();
+        int refusals = 100_000;
+        for (int i = 0; i < refusals; i++) {
+            try {
+                reservations.reserve(epuise, 1, Duration.ofMinutes(5));
+            } catch (StockInsuffisantException ignored) {
+            }
+        }
+        System.out.printf("refus sur produit épuisé : %.0f ns par appel%n", (System.nanoTime() - start) / (double) refusals);
+    }
+}
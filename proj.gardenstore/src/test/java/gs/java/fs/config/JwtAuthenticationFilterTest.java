@@ -0,0 +1,109 @@
+package gs.java.fs.config;
+
+import gs.java.fs.utils.BoundedCache;
+import gs.java.fs.utils.JwtTokenUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class JwtAuthenticationFilterTest {
+
+    private static final String SECRET = "secret-de-test-uniquement-0123456789-0123456789-0123456789-0123456789";
+
+    private final JwtTokenUtil jwtTokenUtil = new JwtTokenUtil(SECRET);
+
+    @AfterEach
+    void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    private String token(String mail) {
+        return jwtTokenUtil.generateAccessToken(42L, User.withUsername(mail).password("x").roles("CLIENT").build());
+    }
+
+    private static JwtAuthenticationFilter filter() {
+        return new JwtAuthenticationFilter(new JwtTokenUtil(SECRET), BoundedCache.lru(10_000, Duration.ofMinutes(15)));
+    }
+
+    private static Authentication filter(JwtAuthenticationFilter filter, String token) throws Exception {
+        SecurityContextHolder.clearContext();
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(HttpHeaders.AUTHORIZATION, "Bearer " + token);
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+
+    @Test
+    void refusesToStartWithoutASecret() {
+        assertThatThrownBy(() -> new JwtTokenUtil("")).isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> new JwtTokenUtil("trop-court")).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void tokensSignedWithAnotherSecretAreIgnored() throws Exception {
+        JwtTokenUtil other = new JwtTokenUtil(SECRET.replace("test", "autre"));
+        String forged = other.generateAccessToken(1L, User.withUsername("admin@gardenstore.fr").password("x").roles("ADMIN").build());
+
+        assertThat(filter(filter(), forged)).isNull();
+        assertThat(filter(filter(), token("lea@gardenstore.fr")))
+                .isInstanceOf(UsernamePasswordAuthenticationToken.class)
+                .extracting(Authentication::getName).isNotNull();
+    }
+
+    @Test
+    void eachRequestGetsItsOwnAuthentication() throws Exception {
+        JwtAuthenticationFilter filter = filter();
+        String token = token("lea@gardenstore.fr");
+
+        Authentication first = filter(filter, token);
+        ((UsernamePasswordAuthenticationToken) first).setDetails("requête 1");
+        Authentication second = filter(filter, token);
+
+        assertThat(second).isNotSameAs(first);
+        assertThat(second.getDetails()).isNull();
+        assertThat(second.getPrincipal()).isEqualTo(first.getPrincipal());
+    }
+
+    @Test
+    @Tag("benchmark")
+    void filterOverheadColdVersusCached() throws Exception {
+        int tokens = 20_000;
+        String[] distinct = new String[tokens];
+        for (int i = 0; i < tokens; i++)
+            distinct[i] = token("client" + i + "@gardenstore.fr");
+        // échauffement du JIT sur les deux chemins, avec un autre cache
+        JwtAuthenticationFilter warmup = filter();
+        for (int pass = 0; pass < 2; pass++) {
+            for (String token : distinct)
+                filter(warmup, token);
+        }
+        JwtAuthenticationFilter filter = filter();
+
+        // à froid : chaque jeton est vu pour la première fois (HMAC + analyse JSON)
+        long start = System.nanoTime();
+        for (String token : distinct)
+            filter(filter, token);
+        double froid = (System.nanoTime() - start) / (double) tokens;
+
+        // en cache : les mêmes jetons, déjà vérifiés
+        start = System.nanoTime();
+        for (String token : distinct)
+            filter(filter, token);
+        double enCache = (System.nanoTime() - start) / (double) tokens;
+
+        System.out.printf("filtre JWT : %.0f ns par requête à froid, %.0f ns en cache%n", froid, enCache);
+    }
+}
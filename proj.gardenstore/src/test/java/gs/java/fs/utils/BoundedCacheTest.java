@@ -0,0 +1,87 @@
+package gs.java.fs.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BoundedCacheTest {
+
+    private record Versioned(String value, long version) { }
+
+    private final BoundedCache<Long, Versioned> cache = new BoundedCache<>(100, Duration.ofMinutes(1), Versioned::version);
+
+    @Test
+    void loadOverlappingAWriteIsNotCached() {
+        Versioned loaded = cache.getOrLoad(1L, key -> {
+            // l'écrivain valide pendant que le lecteur lit encore l'ancienne ligne
+            cache.put(key, new Versioned("new", 2));
+            return new Versioned("old", 1);
+        });
+
+        assertThat(loaded.value()).isEqualTo("old");
+        assertThat(cache.get(1L).value()).isEqualTo("new");
+    }
+
+    @Test
+    void loadOverlappingAnInvalidationIsNotCached() {
+        cache.getOrLoad(1L, key -> {
+            cache.invalidate(key);
+            return new Versioned("deleted", 1);
+        });
+
+        assertThat(cache.get(1L)).isNull();
+    }
+
+    @Test
+    void neverReplacesAHigherVersion() {
+        cache.put(1L, new Versioned("v3", 3));
+        cache.put(1L, new Versioned("v2", 2));
+
+        assertThat(cache.get(1L).value()).isEqualTo("v3");
+    }
+
+    @Test
+    void evictsTheOldestEntryBeyondMaxSize() {
+        BoundedCache<Integer, String> small = new BoundedCache<>(2, Duration.ofMinutes(1));
+        small.put(1, "a");
+        small.put(2, "b");
+        small.put(3, "c");
+
+        assertThat(small.get(1)).isNull();
+        assertThat(small.stats().evictions()).isEqualTo(1);
+        assertThat(small.stats().size()).isEqualTo(2);
+    }
+
+    @Test
+    void lruKeepsTheEntriesThatAreStillRead() {
+        BoundedCache<Integer, String> lru = BoundedCache.lru(2, Duration.ofMinutes(1));
+        lru.put(1, "a");
+        lru.put(2, "b");
+        lru.get(1);
+        lru.put(3, "c");
+
+        assertThat(lru.get(1)).isEqualTo("a");
+        assertThat(lru.get(2)).isNull();
+    }
+
+    @Test
+    void pinnedEntriesSurviveSizeEviction() {
+        BoundedCache<Integer, CompletableFuture<String>> inFlight =
+                new BoundedCache<>(2, Duration.ofMinutes(1), null, future -> !future.isDone());
+        CompletableFuture<String> running = new CompletableFuture<>();
+        inFlight.putIfAbsent(1, running);
+        inFlight.putIfAbsent(2, CompletableFuture.completedFuture("b"));
+        inFlight.putIfAbsent(3, CompletableFuture.completedFuture("c"));
+
+        assertThat(inFlight.get(1)).isSameAs(running);
+        assertThat(inFlight.get(2)).isNull();
+        assertThat(inFlight.stats().size()).isEqualTo(2);
+
+        running.complete("a");
+        inFlight.putIfAbsent(4, CompletableFuture.completedFuture("d"));
+        assertThat(inFlight.get(1)).isNull();
+    }
+}
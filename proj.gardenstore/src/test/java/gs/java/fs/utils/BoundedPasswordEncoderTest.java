@@ -0,0 +1,66 @@
+package gs.java.fs.utils;
+
+import gs.java.fs.exceptions.HashingSaturatedException;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BoundedPasswordEncoderTest {
+
+    @Test
+    void plaintextStoredPasswordsNeverMatch() {
+        try (BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(4, 1, 4, 1)) {
+            assertThat(encoder.matches("secret", "secret")).isFalse();
+            assertThat(encoder.upgradeEncoding("secret")).isFalse();
+        }
+    }
+
+    @Test
+    void hashesOfAnotherCostAreUpgraded() {
+        try (BoundedPasswordEncoder cost4 = new BoundedPasswordEncoder(4, 1, 4, 1);
+             BoundedPasswordEncoder cost5 = new BoundedPasswordEncoder(5, 1, 4, 1)) {
+            String hash = cost4.encode("secret");
+
+            assertThat(cost5.matches("secret", hash)).isTrue();
+            assertThat(cost5.upgradeEncoding(hash)).isTrue();
+            assertThat(cost4.upgradeEncoding(hash)).isFalse();
+        }
+    }
+
+    @Test
+    @Tag("benchmark")
+    void loginThroughputPerCost() throws Exception {
+        int cpus = Runtime.getRuntime().availableProcessors();
+        int clients = cpus * 4;
+        for (int cost : new int[] {8, 10, 12}) {
+            try (BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(cost, cpus, clients, 1)) {
+                String hash = encoder.encode("motdepasse-de-test");
+                // environ deux secondes de travail par coût : chaque point de coût double le prix d'une vérification
+                int logins = Math.max(cpus, (cpus * 400) >> (cost - 8));
+                LongAdder refused = new LongAdder();
+                ExecutorService pool = Executors.newFixedThreadPool(clients);
+                long start = System.nanoTime();
+                for (int i = 0; i < logins; i++) {
+                    pool.submit(() -> {
+                        try {
+                            assertThat(encoder.matches("motdepasse-de-test", hash)).isTrue();
+                        } catch (HashingSaturatedException ex) {
+                            refused.increment();
+                        }
+                    });
+                }
+                pool.shutdown();
+                assertThat(pool.awaitTermination(5, TimeUnit.MINUTES)).isTrue();
+                double seconds = (System.nanoTime() - start) / 1e9;
+                System.out.printf("coût %d : %.0f connexions/s sur %d threads de hachage (%d refusées en 503)%n",
+                        cost, (logins - refused.sum()) / seconds, cpus, refused.sum());
+            }
+        }
+    }
+}
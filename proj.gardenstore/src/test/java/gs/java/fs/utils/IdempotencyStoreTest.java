@@ -0,0 +1,52 @@
+package gs.java.fs.utils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import gs.java.fs.api.models.form.CommandeForm;
+import gs.java.fs.domain.entities.Livreur;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IdempotencyStoreTest {
+
+    private final IdempotencyStore store = new IdempotencyStore(100, Duration.ofMinutes(1), Duration.ofSeconds(5), new ObjectMapper().findAndRegisterModules());
+    private final AtomicInteger executions = new AtomicInteger();
+
+    private static CommandeForm form(int montant) {
+        // entité sans equals/hashCode : deux désérialisations du même corps ne sont pas égales
+        Livreur livreur = new Livreur();
+        livreur.setId(7L);
+        return new CommandeForm(null, 1, 42, LocalDate.of(2024, 6, 1), montant, livreur, 85000, null);
+    }
+
+    private ResponseEntity<?> execute(CommandeForm form) {
+        return store.execute("commande", "cle-1", form, () -> {
+            executions.incrementAndGet();
+            return ResponseEntity.status(HttpStatus.CREATED).body("créée");
+        });
+    }
+
+    @Test
+    void sameBodyIsReplayed() {
+        execute(form(1990));
+        ResponseEntity<?> replay = execute(form(1990));
+
+        assertThat(executions.get()).isEqualTo(1);
+        assertThat(replay.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        assertThat(replay.getHeaders().getFirst("Idempotent-Replayed")).isEqualTo("true");
+    }
+
+    @Test
+    void reusedKeyWithAnotherBodyIsRejected() {
+        execute(form(1990));
+
+        assertThat(execute(form(2490)).getStatusCode()).isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY);
+        assertThat(executions.get()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,46 @@
+package gs.java.fs.utils;
+
+import gs.java.fs.exceptions.InvalidCursorException;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class KeysetCursorTest {
+
+    private static String raw(String value) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void roundTripsKeyAndId() {
+        KeysetCursor cursor = KeysetCursor.decode(KeysetCursor.encode(LocalDate.of(2024, 3, 1), 42L), LocalDate::parse);
+        assertThat(cursor.key()).isEqualTo("2024-03-01");
+        assertThat(cursor.id()).isEqualTo(42L);
+    }
+
+    @Test
+    void emptyCursorStartsFromTheBeginning() {
+        assertThat(KeysetCursor.decode(null)).isEqualTo(KeysetCursor.START);
+        assertThat(KeysetCursor.decode(" ")).isEqualTo(KeysetCursor.START);
+    }
+
+    @Test
+    void rejectsKeyOfTheWrongType() {
+        assertThatThrownBy(() -> KeysetCursor.decode(raw("abc|12"), Integer::valueOf))
+                .isInstanceOf(InvalidCursorException.class);
+        assertThatThrownBy(() -> KeysetCursor.decode(raw("2024-13-45|12"), LocalDate::parse))
+                .isInstanceOf(InvalidCursorException.class);
+    }
+
+    @Test
+    void rejectsMalformedCursor() {
+        assertThatThrownBy(() -> KeysetCursor.decode("%%%")).isInstanceOf(InvalidCursorException.class);
+        assertThatThrownBy(() -> KeysetCursor.decode(raw("sans-separateur"))).isInstanceOf(InvalidCursorException.class);
+        assertThatThrownBy(() -> KeysetCursor.decode(raw("x|-1"))).isInstanceOf(InvalidCursorException.class);
+    }
+}
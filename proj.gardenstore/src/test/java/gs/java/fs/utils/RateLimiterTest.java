@@ -0,0 +1,96 @@
+package gs.java.fs.utils;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RateLimiterTest {
+
+    @Test
+    void allowsTheBurstThenAsksToWait() {
+        RateLimiter limiter = new RateLimiter(5, Duration.ofMinutes(1), 100);
+        for (int i = 0; i < 5; i++)
+            assertThat(limiter.tryAcquire("10.0.0.1")).isZero();
+
+        long wait = limiter.tryAcquire("10.0.0.1");
+        assertThat(wait).isPositive().isLessThanOrEqualTo(Duration.ofSeconds(12).toNanos());
+        // les seaux sont indépendants
+        assertThat(limiter.tryAcquire("10.0.0.2")).isZero();
+    }
+
+    @Test
+    void refusesNewKeysWhenTheTableIsFull() {
+        RateLimiter limiter = new RateLimiter(5, Duration.ofMinutes(1), 2);
+        limiter.tryAcquire("a");
+        limiter.tryAcquire("b");
+
+        assertThat(limiter.tryAcquire("c")).isPositive();
+        assertThat(limiter.stats().rejectedFull()).isEqualTo(1);
+    }
+
+    @Test
+    void onlyTheSweepFreesRoomForNewKeys() throws Exception {
+        RateLimiter limiter = new RateLimiter(5, Duration.ofMillis(5), 2);
+        limiter.tryAcquire("a");
+        limiter.tryAcquire("b");
+        Thread.sleep(20);
+
+        // seaux redevenus pleins, mais la demande ne parcourt pas la table
+        assertThat(limiter.tryAcquire("c")).isPositive();
+        limiter.evictIdle();
+        assertThat(limiter.tryAcquire("c")).isZero();
+    }
+
+    @Test
+    @Tag("benchmark")
+    void checkCostsTensOfNanoseconds() throws Exception {
+        int iterations = 20_000_000;
+        // seau jamais vide : chemin accepté (lecture de la table + un compareAndSet)
+        RateLimiter open = new RateLimiter(Integer.MAX_VALUE, Duration.ofDays(1), 100_000);
+        // seau vide : chemin refusé (aucune écriture)
+        RateLimiter closed = new RateLimiter(1, Duration.ofDays(1), 100_000);
+        closed.tryAcquire("10.0.0.1");
+        String[] keys = new String[1024];
+        for (int i = 0; i < keys.length; i++)
+            keys[i] = "10.0." + (i >> 8) + "." + (i & 0xff);
+
+        long sink = 0;
+        for (int pass = 0; pass < 2; pass++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++)
+                sink += open.tryAcquire(keys[i & (keys.length - 1)]);
+            double accepted = (System.nanoTime() - start) / (double) iterations;
+
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i++)
+                sink += closed.tryAcquire("10.0.0.1");
+            double refused = (System.nanoTime() - start) / (double) iterations;
+
+            // la première passe sert d'échauffement au JIT
+            if (pass == 1)
+                System.out.printf("1 thread : %.1f ns par vérification acceptée, %.1f ns par refus%n", accepted, refused);
+        }
+
+        int threads = Runtime.getRuntime().availableProcessors();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        long start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            int offset = t * 97;
+            pool.submit(() -> {
+                for (int i = 0; i < iterations / threads; i++)
+                    open.tryAcquire(keys[(i + offset) & (keys.length - 1)]);
+            });
+        }
+        pool.shutdown();
+        assertThat(pool.awaitTermination(5, TimeUnit.MINUTES)).isTrue();
+        System.out.printf("%d threads : %.1f ns par vérification (débit cumulé)%n",
+                threads, (System.nanoTime() - start) / (double) iterations);
+        assertThat(sink).isPositive();
+    }
+}
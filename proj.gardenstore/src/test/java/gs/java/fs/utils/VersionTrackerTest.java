@@ -0,0 +1,35 @@
+package gs.java.fs.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class VersionTrackerTest {
+
+    private final VersionTracker versions = new VersionTracker();
+
+    @Test
+    void staleReadNeverRecordsAnOlderVersion() {
+        versions.changed(1L, 4L);
+        versions.record(1L, 3L);
+
+        assertThat(versions.etag(1L)).isEqualTo(VersionTracker.etag(1L, 4L));
+    }
+
+    @Test
+    void removedEntityIsNotRecordedAgain() {
+        versions.record(1L, 2L);
+        versions.removed(1L);
+        versions.record(1L, 2L);
+
+        assertThat(versions.etag(1L)).isNull();
+    }
+
+    @Test
+    void everyWriteChangesTheCollectionEtag() {
+        String before = versions.collectionEtag();
+        versions.changed(1L, 1L);
+
+        assertThat(versions.collectionEtag()).isNotEqualTo(before);
+    }
+}